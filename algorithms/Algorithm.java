@@ -39,5 +39,6 @@ public interface Algorithm {
     public Object getResultSet();
     public Graph getLattice();
     public boolean isAnonymousResult(LatticeNode node);
+    public RunMetrics getMetrics();
     
 }
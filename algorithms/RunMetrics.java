@@ -0,0 +1,125 @@
+/* 
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena" 
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ */
+package algorithms;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of one algorithm run: counters, gauges, the time spent in every
+ * phase and ratios between counters, addressed by dotted names. They can be
+ * updated from several threads, and the getters return sorted snapshots, so
+ * that the metrics can be returned as JSON or copied to a metrics registry.
+ */
+public class RunMetrics {
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> phases = new ConcurrentHashMap<>();
+    private final Map<String, Double> ratios = new ConcurrentHashMap<>();
+
+    /**
+     * Adds to a counter
+     * @param name the name of the counter
+     * @param amount the amount added
+     */
+    public void add(String name, long amount){
+        counters.computeIfAbsent(name, n -> new LongAdder()).add(amount);
+    }
+
+    public void increment(String name){
+        add(name, 1);
+    }
+
+    /**
+     * Sets a gauge
+     * @param name the name of the gauge
+     * @param value the value
+     */
+    public void set(String name, long value){
+        gauges.computeIfAbsent(name, n -> new AtomicLong()).set(value);
+    }
+
+    /**
+     * Raises a gauge to a value, if the value is larger
+     * @param name the name of the gauge
+     * @param value the value
+     */
+    public void max(String name, long value){
+        gauges.computeIfAbsent(name, n -> new AtomicLong()).accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Adds time to a phase
+     * @param phase the name of the phase
+     * @param start the System.nanoTime() at the start of the phase
+     */
+    public void addTime(String phase, long start){
+        phases.computeIfAbsent(phase, n -> new LongAdder()).add(System.nanoTime() - start);
+    }
+
+    /**
+     * Sets a ratio of two counters
+     * @param name the name of the ratio
+     * @param numerator the counter above
+     * @param denominator the counter below
+     */
+    public void setRatio(String name, String numerator, String denominator){
+        long below = getCounter(denominator);
+        ratios.put(name, (below == 0) ? 0.0 : getCounter(numerator) / (double) below);
+    }
+
+    public long getCounter(String name){
+        LongAdder counter = counters.get(name);
+        return (counter != null) ? counter.sum() : 0;
+    }
+
+    public Map<String, Long> getCounters(){
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        return snapshot;
+    }
+
+    public Map<String, Long> getGauges(){
+        Map<String, Long> snapshot = new TreeMap<>();
+        gauges.forEach((name, gauge) -> snapshot.put(name, gauge.get()));
+        return snapshot;
+    }
+
+    /**
+     * Gets the time spent in every phase
+     * @return the milliseconds of every phase
+     */
+    public Map<String, Double> getPhases(){
+        Map<String, Double> snapshot = new TreeMap<>();
+        phases.forEach((name, time) -> snapshot.put(name, time.sum() / 1e6));
+        return snapshot;
+    }
+
+    public Map<String, Double> getRatios(){
+        return new TreeMap<>(ratios);
+    }
+
+    @Override
+    public String toString(){
+        return "counters=" + getCounters() + " gauges=" + getGauges() + " phases(ms)=" + getPhases() + " ratios=" + getRatios();
+    }
+}
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import algorithms.Algorithm;
+import algorithms.RunMetrics;
 import data.Data;
 import graph.Edge;
 import graph.Graph;
@@ -44,11 +45,14 @@ public class Flash implements Algorithm{
     Data dataset = null;
     Map<Integer, Hierarchy> hierarchies = null;
     Integer k = null;
+    int outliers = 0;
     LatticeBuilder builder = null;
     Lattice lattice = null;
     int hierarchiesNum = -1;
-    HistoryBuffers buffers = new HistoryBuffers(10);   
-    Set<LatticeNode> resultset = new HashSet<>();
+    //frequency sets kept for deriving others, in a quarter of the heap
+    HistoryBuffers<Buffer> buffers = new HistoryBuffers<>(Runtime.getRuntime().maxMemory() / 4);
+    GeneralizationTable[] tables = null;
+    RunMetrics metrics = new RunMetrics();
     
     @Override
     public void setDataset(Data dataset) {
@@ -63,6 +67,9 @@ public class Flash implements Algorithm{
     @Override
     public void setArguments(Map<String, Integer> arguments) {
         this.k = arguments.get("k");
+        if(arguments.get("outliers") != null){
+            this.outliers = arguments.get("outliers");
+        }
     }
     
     @Override
@@ -73,7 +80,9 @@ public class Flash implements Algorithm{
         int minLevels[] = new int[hierarchiesNum];
         int maxLevels[] = new int[hierarchiesNum];
         int distinctValues[][] = new int[hierarchiesNum][];
+        tables = new GeneralizationTable[hierarchiesNum];
         int count = 0;
+        long start = System.nanoTime();
         
         for(Integer column : this.hierarchies.keySet()){
             Hierarchy h = this.hierarchies.get(column);
@@ -86,20 +95,33 @@ public class Flash implements Algorithm{
             //compute distinct values in hierarchy
             distinctValues[count] = new int[getHierarchyHeight(h)];
             findHierarchyDistinctValues(h, distinctValues[count]);
+            
+            //generalize the distinct values of the column once for all levels
+            try {
+                tables[count] = new GeneralizationTable(this.dataset, column, h, getHierarchyHeight(h));
+            } catch (ParseException ex) {
+                Logger.getLogger(Flash.class.getName()).log(Level.SEVERE, null, ex);
+                return;
+            }
             count++;
         }
+        metrics.addTime("tables", start);
                 
         //build lattice
+        start = System.nanoTime();
         builder = new LatticeBuilder(qidColumns, minLevels, maxLevels);
         lattice = builder.build();
-        Heap heap = new Heap(maxLevels, distinctValues);
+        metrics.set("lattice.size", lattice.getSize());
+        metrics.addTime("lattice", start);
+        Heap heap = new Heap(lattice, maxLevels, distinctValues);
         Sorting sorter = new Sorting(maxLevels, distinctValues);
         
         //outer loop of Flash algorithm
+        start = System.nanoTime();
         for(int level = 0; level <= lattice.getHeight()-1; level++){
-            for(LatticeNode node : sorter.sort(lattice.getLevels()[level])){
-                if(!node.isTagged()){
-                    LatticeNode[] path = findPath(node, maxLevels, distinctValues);
+            for(LatticeNode node : sorter.sort(lattice.getUntaggedLevel(level))){
+                if(!lattice.isTagged(node)){
+                    LatticeNode[] path = findPath(node, sorter);
                     try {
                         checkPath(path, heap);
                     } catch (ParseException ex) {
@@ -108,8 +130,8 @@ public class Flash implements Algorithm{
                     while(!heap.isEmpty()){
                         node = heap.extractMin();
                         for(LatticeNode successor : sorter.sort(node.getSuccessors())){
-                            if(!successor.isTagged()){
-                                path = findPath(successor, maxLevels,distinctValues);
+                            if(!lattice.isTagged(successor)){
+                                path = findPath(successor, sorter);
                                 try {
                                     checkPath(path, heap);
                                 } catch (ParseException ex) {
@@ -121,7 +143,10 @@ public class Flash implements Algorithm{
                }
             }
         }
-        System.out.println("Results : " + this.resultset);
+        metrics.addTime("search", start);
+        metrics.set("history.peakMemoryBytes", buffers.peakMemory());
+        metrics.setRatio("history.hitRate", "history.hits", "history.lookups");
+        System.out.println("Results : " + getResultSet());
     }
     
     public void checkPath(LatticeNode[] path, Heap heap) throws ParseException{
@@ -144,9 +169,8 @@ public class Flash implements Algorithm{
         }
     }
     
-    public LatticeNode[] findPath(LatticeNode node, int[] maxLevels, int[][] distinctValues){
+    public LatticeNode[] findPath(LatticeNode node, Sorting sorter){
         List<LatticeNode> path = new ArrayList<>();
-        Sorting sorter = new Sorting(maxLevels, distinctValues);
         
          while(true){
              LatticeNode headNode = head(path);
@@ -155,11 +179,9 @@ public class Flash implements Algorithm{
 
             path.add(node);
 
-            for(LatticeNode upNode : sorter.sort(node.getSuccessors())){
-                if(!upNode.isTagged()){
-                    node = upNode;
-                    break;
-                }
+            LatticeNode upNode = sorter.findFirstUntagged(node.getSuccessors(), lattice);
+            if(upNode != null){
+                node = upNode;
             }
         }
         
@@ -174,30 +196,41 @@ public class Flash implements Algorithm{
     
     public boolean checkAndTag(LatticeNode node) throws ParseException{
         Buffer curBuffer = null;
+        long start = System.nanoTime();
+        metrics.increment("nodes.checked");
+        metrics.increment("history.lookups");
 
         LatticeNode bestNode = this.buffers.findClosestNode(node);
         
         if (bestNode != null){
             Buffer bestNodeBuffer = this.buffers.get(bestNode);           
-            curBuffer = new Buffer(this.dataset, this.hierarchies);
+            curBuffer = new Buffer(this.dataset, this.hierarchies, this.tables, this.k, this.outliers);
             curBuffer.compute(node, bestNode, bestNodeBuffer, this.lattice.getQidColumns());
-            
+            metrics.increment("history.hits");
+            metrics.increment("frequencySets.fromHistory");
         }
         else{
             //compute frequency set from dataset
-            curBuffer = new Buffer(this.dataset, this.hierarchies);
-            curBuffer.compute(node, this.lattice.getQidColumns());
-            
+            curBuffer = new Buffer(this.dataset, this.hierarchies, this.tables, this.k, this.outliers);
+            curBuffer.compute(node);
+            metrics.increment("frequencySets.fromDataset");
         }
+        metrics.addTime("frequencySets", start);
         
-        //check if node is k-anonymous
+        //check if node is k-anonymous, the other nodes tagged with it are tagged predictively
         if(curBuffer.isKAnonymous(this.k)){
-            lattice.setTagUpwards(node, this.resultset);
+            metrics.add("nodes.taggedPredictively", Math.max(lattice.setTagUpwards(node) - 1, 0));
             return true;
         }
         else{
-            this.buffers.put(node, curBuffer);            
-            lattice.setTagDownwards(node);
+            //only complete frequency sets can be used to derive others
+            if(curBuffer.isComplete()){
+                this.buffers.put(node, curBuffer);
+            }
+            else{
+                metrics.increment("frequencySets.stoppedEarly");
+            }
+            metrics.add("nodes.taggedPredictively", Math.max(lattice.setTagDownwards(node) - 1, 0));
             return false;
         }
     }
@@ -318,12 +351,20 @@ public class Flash implements Algorithm{
 
     @Override
     public Set<LatticeNode> getResultSet() {
-        return this.resultset;
+        if(lattice == null){
+            return new HashSet<>();
+        }
+        return lattice.getAnonymousNodes();
     }
 
     @Override
     public boolean isAnonymousResult(LatticeNode node) {
-        return this.resultset.contains(node);
+        return lattice.isAnonymous(node);
+    }
+
+    @Override
+    public RunMetrics getMetrics() {
+        return metrics;
     }
 
 }
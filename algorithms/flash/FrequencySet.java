@@ -0,0 +1,341 @@
+/*
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena"
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ */
+package algorithms.flash;
+
+/**
+ * Counts of the equivalence classes of a lattice node. The generalized ids of
+ * a row are bit-packed into one long (or more for wide QI sets) and counted
+ * in an open addressing hash map with primitive keys and counts.
+ * Not thread safe.
+ */
+public class FrequencySet {
+    private static final float loadFactor = 0.5f;
+
+    /** word, shift and mask of every dimension in the packed key */
+    private final int[] dimWord;
+    private final int[] dimShift;
+    private final long[] dimMask;
+    /** longs per packed key */
+    private final int stride;
+
+    private long[] keys = null;
+    private int[] counts = null;
+    private int size = 0;
+    private int rows = 0;
+    private int threshold = 0;
+    private final long[] key;
+
+    /** the k that classes are tracked against, 0 disables tracking */
+    private final int k;
+    /** number of equivalence classes with less than k rows */
+    private int classesUnderK = 0;
+    /** number of rows in equivalence classes with less than k rows */
+    private int rowsUnderK = 0;
+
+    /**
+     * Creates an empty frequency set
+     * @param levelSizes the number of distinct ids of every dimension
+     */
+    public FrequencySet(int[] levelSizes){
+        this(levelSizes, 16, 0);
+    }
+
+    /**
+     * Creates an empty frequency set
+     * @param levelSizes the number of distinct ids of every dimension
+     * @param expectedSize the expected number of equivalence classes
+     */
+    public FrequencySet(int[] levelSizes, int expectedSize){
+        this(levelSizes, expectedSize, 0);
+    }
+
+    /**
+     * Creates an empty frequency set that keeps track of the classes under k
+     * while rows are added
+     * @param levelSizes the number of distinct ids of every dimension
+     * @param expectedSize the expected number of equivalence classes
+     * @param k the parameter k of k-Anonymity
+     */
+    public FrequencySet(int[] levelSizes, int expectedSize, int k){
+        this.k = k;
+        dimWord = new int[levelSizes.length];
+        dimShift = new int[levelSizes.length];
+        dimMask = new long[levelSizes.length];
+
+        //a dimension never spans two words
+        int word = 0;
+        int shift = 0;
+        for(int i=0; i<levelSizes.length; i++){
+            int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(levelSizes[i] - 1));
+            if(shift + bits > 64){
+                word++;
+                shift = 0;
+            }
+            dimWord[i] = word;
+            dimShift[i] = shift;
+            dimMask[i] = (1L << bits) - 1;
+            shift += bits;
+        }
+        stride = word + 1;
+        key = new long[stride];
+
+        int capacity = 16;
+        while(capacity * loadFactor < expectedSize){
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity){
+        keys = new long[capacity * stride];
+        counts = new int[capacity];
+        threshold = (int)(capacity * loadFactor);
+    }
+
+    /**
+     * Adds count rows to the equivalence class of the given ids
+     * @param ids the generalized id of every dimension
+     * @param count the number of rows
+     * @return the new count of the equivalence class
+     */
+    public int add(int[] ids, int count){
+        pack(ids, key, 0);
+        return add(key, 0, count);
+    }
+
+    /**
+     * Packs the generalized ids of a row into a key, in the layout of this
+     * frequency set and of every other one with the same level sizes
+     * @param ids the generalized id of every dimension
+     * @param packed the array of the key
+     * @param offset the position of the key in the array
+     */
+    public void pack(int[] ids, long[] packed, int offset){
+        for(int w=0; w<stride; w++){
+            packed[offset + w] = 0;
+        }
+        for(int i=0; i<ids.length; i++){
+            packed[offset + dimWord[i]] |= ((long)ids[i]) << dimShift[i];
+        }
+    }
+
+    /**
+     * Adds count rows to the equivalence class of a packed key
+     * @param k the array of the key
+     * @param offset the position of the key in the array
+     * @param count the number of rows
+     * @return the new count of the equivalence class
+     */
+    public int add(long[] k, int offset, int count){
+        if(size >= threshold){
+            rehash();
+        }
+        rows += count;
+
+        int mask = counts.length - 1;
+        int slot = hash(k, offset) & mask;
+        while(counts[slot] != 0){
+            if(equals(slot, k, offset)){
+                int before = counts[slot];
+                counts[slot] += count;
+                track(before, counts[slot]);
+                return counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        System.arraycopy(k, offset, keys, slot * stride, stride);
+        counts[slot] = count;
+        size++;
+        track(0, count);
+        return count;
+    }
+
+    /**
+     * Updates the classes under k after the count of a class has changed
+     * @param before the previous count of the class, 0 for a new class
+     * @param after the new count of the class
+     */
+    private void track(int before, int after){
+        if(after < this.k){
+            if(before == 0){
+                classesUnderK++;
+            }
+            rowsUnderK += after - before;
+        }
+        else if(before != 0 && before < this.k){
+            classesUnderK--;
+            rowsUnderK -= before;
+        }
+    }
+
+    /**
+     * Adds all equivalence classes of a frequency set with the same layout
+     * @param other the other frequency set
+     */
+    public void addAll(FrequencySet other){
+        for(int slot=0; slot<other.counts.length; slot++){
+            if(other.counts[slot] != 0){
+                add(other.keys, slot * stride, other.counts[slot]);
+            }
+        }
+    }
+
+    private boolean equals(int slot, long[] k, int offset){
+        int base = slot * stride;
+        for(int w=0; w<stride; w++){
+            if(keys[base + w] != k[offset + w]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hash(long[] k, int offset){
+        return (int)mix(k, offset);
+    }
+
+    private long mix(long[] k, int offset){
+        long h = 0;
+        for(int w=0; w<stride; w++){
+            h ^= k[offset + w];
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+        }
+        return h;
+    }
+
+    /**
+     * Splits packed keys into partitions, using the bits of the hash that do
+     * not pick the slots, so that the classes of a partition spread over the
+     * slots of its own frequency set
+     * @param k the array of the key
+     * @param offset the position of the key in the array
+     * @param partitions the number of partitions
+     * @return the partition of the key
+     */
+    public int getPartition(long[] k, int offset, int partitions){
+        return (int)(((mix(k, offset) >>> 32) * partitions) >>> 32);
+    }
+
+    private void rehash(){
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        allocate(oldCounts.length << 1);
+        int mask = counts.length - 1;
+        for(int oldSlot=0; oldSlot<oldCounts.length; oldSlot++){
+            if(oldCounts[oldSlot] != 0){
+                int slot = hash(oldKeys, oldSlot * stride) & mask;
+                while(counts[slot] != 0){
+                    slot = (slot + 1) & mask;
+                }
+                System.arraycopy(oldKeys, oldSlot * stride, keys, slot * stride, stride);
+                counts[slot] = oldCounts[oldSlot];
+            }
+        }
+    }
+
+    /**
+     * Gets the number of slots, used and empty, for iteration
+     * @return the number of slots
+     */
+    public int getSlots(){
+        return counts.length;
+    }
+
+    /**
+     * Gets the count of the equivalence class stored in a slot
+     * @param slot the slot
+     * @return the count of the class, 0 if the slot is empty
+     */
+    public int getCount(int slot){
+        return counts[slot];
+    }
+
+    /**
+     * Gets the generalized id of a dimension of the class stored in a slot
+     * @param slot the slot
+     * @param dim the dimension
+     * @return the generalized id
+     */
+    public int getId(int slot, int dim){
+        return (int)((keys[slot * stride + dimWord[dim]] >>> dimShift[dim]) & dimMask[dim]);
+    }
+
+    /**
+     * Gets the number of equivalence classes
+     * @return the number of classes
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Gets the number of rows added to the frequency set
+     * @return the number of rows
+     */
+    public int getRows(){
+        return rows;
+    }
+
+    /**
+     * Gets the number of equivalence classes with less than k rows
+     * @return the number of classes under k
+     */
+    public int getClassesUnderK(){
+        return classesUnderK;
+    }
+
+    /**
+     * Gets the number of rows in equivalence classes with less than k rows
+     * @return the number of rows under k
+     */
+    public int getRowsUnderK(){
+        return rowsUnderK;
+    }
+
+    /**
+     * Gets the k that the classes are tracked against
+     * @return the parameter k, 0 if the classes are not tracked
+     */
+    public int getK(){
+        return k;
+    }
+
+    public int getDimensions(){
+        return dimWord.length;
+    }
+
+    /**
+     * Gets the number of longs of a packed key
+     * @return the longs per key
+     */
+    public int getStride(){
+        return stride;
+    }
+
+    /**
+     * Gets the memory held by the keys and counts
+     * @return the size in bytes
+     */
+    public long getMemorySize(){
+        return keys.length * 8L + counts.length * 4L;
+    }
+}
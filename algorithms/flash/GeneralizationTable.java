@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena"
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ */
+package algorithms.flash;
+
+import data.Data;
+import dictionary.DictionaryString;
+import hierarchy.Hierarchy;
+import hierarchy.ranges.HierarchyImplRangesDate;
+import hierarchy.ranges.RangeDate;
+import hierarchy.ranges.RangeDouble;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Integer coded generalization of a quasi-identifier column. Every distinct
+ * value of the column gets a leaf id, and for every generalization level the
+ * table stores the id of the leaf's ancestor in that level, so that projecting
+ * a row to a lattice node is plain array indexing.
+ */
+public class GeneralizationTable {
+    /** leaf id of every row of the dataset */
+    private final int[] leafIds;
+    /** ancestor id of every leaf id, per level */
+    private final int[][] ancestors;
+    /** the generalized value of every id, per level */
+    private final String[][] labels;
+    /** parent id of every id, per level (top level excluded) */
+    private final int[][] parents;
+
+    /**
+     * Builds the generalization table of a quasi-identifier column
+     * @param data the dataset
+     * @param column the quasi-identifier column
+     * @param h the hierarchy of the column
+     * @param height the number of generalization levels (leaf level included)
+     * @throws ParseException
+     */
+    public GeneralizationTable(Data data, int column, Hierarchy h, int height) throws ParseException{
+        int[] intColumn = data.getIntColumn(column);
+        double[] doubleColumn = data.getDoubleColumn(column);
+        String columnType = data.getColNamesType().get(column);
+        boolean isDictionaryColumn = columnType.equals("string") || columnType.equals("date");
+        DictionaryString dict = data.getDictionary(column);
+
+        //assign leaf ids to the distinct values of the column
+        Map<Double, Integer> leafIdsMap = new HashMap<>();
+        List<Object> leafValues = new ArrayList<>();
+        leafIds = new int[data.getDataLenght()];
+        for(int i=0; i<leafIds.length; i++){
+            double value = (intColumn != null) ? intColumn[i] : doubleColumn[i];
+            Integer leafId = leafIdsMap.get(value);
+            if(leafId == null){
+                leafId = leafValues.size();
+                leafIdsMap.put(value, leafId);
+                if(isDictionaryColumn){
+                    leafValues.add(dict.getIdToString((int)value));
+                }
+                else{
+                    leafValues.add(value);
+                }
+            }
+            leafIds[i] = leafId;
+        }
+
+        //dates of range hierarchies are parsed once per distinct value
+        int leavesNum = leafValues.size();
+        Object[] curValues = leafValues.toArray();
+        if(h instanceof HierarchyImplRangesDate){
+            for(int leaf=0; leaf<leavesNum; leaf++){
+                String value = curValues[leaf].toString();
+                if(!value.contains("-") && !value.equals("NaN")){
+                    curValues[leaf] = getDateFromString(value);
+                }
+            }
+        }
+
+        //generalize every distinct value once, level by level
+        ancestors = new int[height][leavesNum];
+        labels = new String[height][];
+        for(int level=0; level<height; level++){
+            if(level > 0){
+                for(int leaf=0; leaf<leavesNum; leaf++){
+                    curValues[leaf] = generalize(h, curValues[leaf], level-1);
+                }
+            }
+
+            Map<String, Integer> levelIds = new HashMap<>();
+            List<String> levelLabels = new ArrayList<>();
+            for(int leaf=0; leaf<leavesNum; leaf++){
+                String label = (level == 0) ? leafValues.get(leaf).toString() : curValues[leaf].toString();
+                Integer id = levelIds.get(label);
+                if(id == null){
+                    id = levelLabels.size();
+                    levelIds.put(label, id);
+                    levelLabels.add(label);
+                }
+                ancestors[level][leaf] = id;
+            }
+            labels[level] = levelLabels.toArray(new String[levelLabels.size()]);
+        }
+
+        //the parent of an id is the next level ancestor of any of its leaves
+        parents = new int[Math.max(height - 1, 0)][];
+        for(int level=0; level<height-1; level++){
+            parents[level] = new int[labels[level].length];
+            for(int leaf=0; leaf<leavesNum; leaf++){
+                parents[level][ancestors[level][leaf]] = ancestors[level+1][leaf];
+            }
+        }
+    }
+
+    /**
+     * Generalizes a value by one level
+     * @param h the hierarchy
+     * @param value the value to be generalized
+     * @param step how many times the original value has already been generalized
+     * @return the parent of the value
+     */
+    private static Object generalize(Hierarchy h, Object value, int step) throws ParseException{
+        if(h.getHierarchyType().equals("range")){
+            if(h.getNodesType().equals("double") ||  h.getNodesType().equals("int")){
+                if(step == 0){
+                    if((double) value == 2147483646.0 || value.equals(Double.NaN)){
+                        return getNullRange(h);
+                    }
+                    return h.getParent((Double)value);
+                }
+                return h.getParent(value);
+            }
+            else if(h.getNodesType().equals("date")){
+                if(step == 0){
+                    if(value instanceof Date){
+                        return h.getParent((Date)value);
+                    }
+                    if(value.toString().contains("-")){
+                        return h.getParent((RangeDate)value);
+                    }
+                    if(value.toString().equals("NaN")){
+                        return getNullRange(h);
+                    }
+                    return h.getParent(getDateFromString(value.toString()));
+                }
+                return h.getParent(value);
+            }
+            return value;
+        }
+
+        return h.getParent(value);
+    }
+
+    /**
+     * Finds the range where empty values are generalized to
+     * @param h the hierarchy
+     * @return the range of the empty values
+     */
+    private static Object getNullRange(Hierarchy h){
+        Map<Integer, ArrayList> x = h.getAllParents();
+        ArrayList newList = x.get(x.size()-1);
+        if(newList.size() != 1){
+            return newList.get(0);
+        }
+        return x.get(0).get(0);
+    }
+
+    private static Date getDateFromString(String tmstmp) throws ParseException{
+        SimpleDateFormat sf = new SimpleDateFormat("dd/MM/yyyy");
+        return sf.parse(tmstmp);
+    }
+
+    /**
+     * Gets the id of a row's value, generalized to the specified level
+     * @param row the row of the dataset
+     * @param level the generalization level
+     * @return the id of the generalized value
+     */
+    public int getId(int row, int level){
+        return ancestors[level][leafIds[row]];
+    }
+
+    /**
+     * Gets the generalized value of an id
+     * @param id the id
+     * @param level the generalization level of the id
+     * @return the generalized value
+     */
+    public String getLabel(int id, int level){
+        return labels[level][id];
+    }
+
+    /**
+     * Gets the ancestor ids of all ids of a level in a higher level, so that
+     * the classes of a node can be rolled up to a more general node without
+     * going through the generalized values
+     * @param fromLevel the level of the ids
+     * @param toLevel the level of the ancestors, not lower than fromLevel
+     * @return the ancestor id of every id of fromLevel
+     */
+    public int[] getRollup(int fromLevel, int toLevel){
+        int[] rollup = new int[labels[fromLevel].length];
+        for(int id=0; id<rollup.length; id++){
+            int ancestor = id;
+            for(int level=fromLevel; level<toLevel; level++){
+                ancestor = parents[level][ancestor];
+            }
+            rollup[id] = ancestor;
+        }
+        return rollup;
+    }
+
+    /**
+     * Gets the leaf ids of all rows
+     * @return the leaf id of every row
+     */
+    public int[] getLeafIds(){
+        return leafIds;
+    }
+
+    /**
+     * Gets the ancestor ids of all leaves in the specified level
+     * @param level the generalization level
+     * @return the ancestor id of every leaf id
+     */
+    public int[] getAncestors(int level){
+        return ancestors[level];
+    }
+
+    /**
+     * Gets the number of distinct generalized values in the specified level
+     * @param level the generalization level
+     * @return the number of ids in this level
+     */
+    public int getLevelSize(int level){
+        return labels[level].length;
+    }
+
+    public int getHeight(){
+        return labels.length;
+    }
+}
@@ -18,64 +18,107 @@
  */
 package algorithms.flash;
 
-import java.util.Comparator;
-import java.util.PriorityQueue;
+import java.util.Arrays;
 
 /**
+ * Binary heap of node ids, ordered by the keys of NodeOrder. The keys of
+ * every node are computed once, when it is added.
  *
  * @author serafeim
  */
 public class Heap {
-    private final int[] maxLevels;
-    private final int[][] distinctValues;
-    PriorityQueue<LatticeNode> queue = new PriorityQueue<>(10, new LatticeNodeComparator());
+    private final Lattice lattice;
+    private final NodeOrder order;
+    private int size = 0;
+    private int[] ids = new int[16];
+    private int[] levels = new int[16];
+    private double[] avgs = new double[16];
+    private double[] distincts = new double[16];
     
-    Heap(int[] maxLevels, int[][] distinctValues) {
-        this.maxLevels = maxLevels;
-        this.distinctValues = distinctValues;
+    public Heap(Lattice lattice, int[] maxLevels, int[][] distinctValues) {
+        this.lattice = lattice;
+        this.order = new NodeOrder(maxLevels, distinctValues);
     }
     
     public boolean isEmpty(){
-        return this.queue.isEmpty();
+        return size == 0;
     }
 
     public LatticeNode extractMin(){
-        return this.queue.poll();
+        if(size == 0){
+            return null;
+        }
+        int id = ids[0];
+        size--;
+        move(size, 0);
+        siftDown(0);
+        return lattice.getNode(id);
     }
     
     public void add(LatticeNode node){
-        this.queue.add(node);
+        if(size == ids.length){
+            int capacity = size << 1;
+            ids = Arrays.copyOf(ids, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            avgs = Arrays.copyOf(avgs, capacity);
+            distincts = Arrays.copyOf(distincts, capacity);
+        }
+        ids[size] = node.id;
+        levels[size] = node.getLevel();
+        avgs[size] = order.getAvgGeneralization(node.getTransformation());
+        distincts[size] = order.getDistinctValuesAvgGen(node.getTransformation());
+        size++;
+        siftUp(size - 1);
     }
     
-    class LatticeNodeComparator implements Comparator<LatticeNode>{
-
-        @Override
-        public int compare(LatticeNode n1, LatticeNode n2) {
-            if(n1.getLevel() < n2.getLevel()){
-                return -1;
+    private int compare(int i, int j){
+        return NodeOrder.compare(levels[i], avgs[i], distincts[i], levels[j], avgs[j], distincts[j]);
+    }
+    
+    private void move(int from, int to){
+        ids[to] = ids[from];
+        levels[to] = levels[from];
+        avgs[to] = avgs[from];
+        distincts[to] = distincts[from];
+    }
+    
+    private void swap(int i, int j){
+        int id = ids[i];
+        int level = levels[i];
+        double avg = avgs[i];
+        double distinct = distincts[i];
+        move(j, i);
+        ids[j] = id;
+        levels[j] = level;
+        avgs[j] = avg;
+        distincts[j] = distinct;
+    }
+    
+    private void siftUp(int pos){
+        while(pos > 0){
+            int parent = (pos - 1) >>> 1;
+            if(compare(pos, parent) >= 0){
+                break;
+            }
+            swap(pos, parent);
+            pos = parent;
+        }
+    }
+    
+    private void siftDown(int pos){
+        while(true){
+            int child = 2 * pos + 1;
+            if(child >= size){
+                break;
             }
-            else if(n1.getLevel() > n2.getLevel()){
-                return 1;
+            if(child + 1 < size && compare(child + 1, child) < 0){
+                child++;
             }
-            else{
-                if(n1.getAvgGeneralization(maxLevels) < n2.getAvgGeneralization(maxLevels)){
-                    return -1;
-                }
-                else if(n1.getAvgGeneralization(maxLevels) > n2.getAvgGeneralization(maxLevels)){
-                    return 1;
-                }
-                else{
-                    if(n1.getDistinctValuesAvgGen(distinctValues) < n2.getDistinctValuesAvgGen(distinctValues)){
-                        return -1;
-                    }
-                    else if(n1.getDistinctValuesAvgGen(distinctValues) > n2.getDistinctValuesAvgGen(distinctValues)){
-                        return 1;
-                    }
-                }
+            if(compare(child, pos) >= 0){
+                break;
             }
-    
-            return 0;
-        } 
+            swap(pos, child);
+            pos = child;
+        }
     }
-    
 }
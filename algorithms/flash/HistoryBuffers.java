@@ -19,62 +19,191 @@
 package algorithms.flash;
 
 
-import java.util.LinkedHashMap;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.ArrayList;
-import java.util.Map.Entry;
 
 /**
- *
+ * Cache of the frequency sets of checked lattice nodes, used to derive the
+ * frequency sets of more generalized nodes. The cache is bounded by the
+ * memory of its frequency sets; when it is full, the buffers that were used
+ * the least for their size are removed first. The cached nodes are indexed by
+ * their transformations, so that the smallest buffer of a node that is
+ * generalized by a given node is found without scanning all of them.
+ * @param <B> the type of the cached frequency sets
  * @author serafeim
  */
-public class HistoryBuffers{
-    private static final float   hashTableLoadFactor = 0.75f;
-    private LinkedHashMap<LatticeNode, Buffer> map = null;
-    private int cacheSize = 0;
+public class HistoryBuffers<B extends FrequencyBuffer>{
+    //estimated memory of a cached node besides its frequency set
+    private static final long entryOverhead = 256;
+    
+    private Map<LatticeNode, HistoryEntry<B>> map = new HashMap<>();
+    private IndexNode<B> index = new IndexNode<>();
+    private long memorySize = 0;
+    private long usedMemory = 0;
+    private long peakMemory = 0;
+    private long clock = 0;
+    
+    private static class HistoryEntry<B> {
+        LatticeNode node = null;
+        B buffer = null;
+        long memory = 0;
+        int uses = 0;
+        long lastUse = 0;
+    }
     
     /**
-     * Creates a new LRU cache.
-     * @param cacheSize the maximum number of entries that will be kept in this cache.
+     * Node of the index of the cached transformations. The children of a node
+     * at depth i are indexed by the level of dimension i, and every node keeps
+     * the smallest buffer size below it
      */
-    public HistoryBuffers (int cacheSize) {
-        this.cacheSize = cacheSize;
-        int hashTableCapacity = (int)Math.ceil(cacheSize / hashTableLoadFactor) + 1;
-        
-        map = new LinkedHashMap<LatticeNode, Buffer>(hashTableCapacity, hashTableLoadFactor, true) {
-            private static final long serialVersionUID = 1;
-            @Override
-            protected boolean removeEldestEntry (Map.Entry<LatticeNode, Buffer> eldest) {
-                return size() > HistoryBuffers.this.cacheSize;
-            }
-        };
+    private static class IndexNode<B> {
+        IndexNode<B>[] children = null;
+        HistoryEntry<B> entry = null;
+        int minSize = Integer.MAX_VALUE;
+    }
+    
+    /**
+     * Creates a new cache.
+     * @param memorySize the maximum memory in bytes of the buffers kept in this cache.
+     */
+    public HistoryBuffers (long memorySize) {
+        this.memorySize = memorySize;
     }
     
     /**
-     * Retrieves an entry from the cache.<br>
-     * The retrieved entry becomes the MRU (most recently used) entry.
+     * Retrieves an entry from the cache and counts it as used.
      * @param key the key whose associated value is to be returned.
      * @return    the value associated to this key, or null if no value with this key exists in the cache.
      */
-    public synchronized Buffer get (LatticeNode key) {
-        return map.get(key);
+    public synchronized B get (LatticeNode key) {
+        HistoryEntry<B> entry = map.get(key);
+        if(entry == null){
+            return null;
+        }
+        entry.uses++;
+        entry.lastUse = ++clock;
+        return entry.buffer;
     }
     
-    public int getSizeOfMap(){
+    public synchronized int getSizeOfMap(){
         return map.size();
     }
     
     /**
      * Adds an entry to this cache.
-     * The new entry becomes the MRU (most recently used) entry.
      * If an entry with the specified key already exists in the cache, it is replaced by the new entry.
-     * If the cache is full, the LRU (least recently used) entry is removed from the cache.
+     * If the cache is full, the entries with the fewest uses for their memory are removed,
+     * and a buffer larger than the whole cache is not kept.
      * @param key    the key with which the specified value is to be associated.
      * @param value  a value to be associated with the specified key.
      */
-    public synchronized void put (LatticeNode key, Buffer value) {
-        map.put (key, value);
+    public synchronized void put (LatticeNode key, B value) {
+        remove(key);
+        
+        HistoryEntry<B> entry = new HistoryEntry<>();
+        entry.node = key;
+        entry.buffer = value;
+        entry.memory = value.getMemorySize() + entryOverhead;
+        entry.lastUse = ++clock;
+        if(entry.memory > memorySize){
+            return;
+        }
+        
+        while(usedMemory + entry.memory > memorySize){
+            remove(findVictim().node);
+        }
+        
+        map.put(key, entry);
+        usedMemory += entry.memory;
+        peakMemory = Math.max(peakMemory, usedMemory);
+        insert(entry);
+    }
+    
+    /**
+     * Finds the entry with the fewest uses for its memory, the least recently
+     * used one among equals
+     * @return the entry to be removed
+     */
+    private HistoryEntry<B> findVictim(){
+        HistoryEntry<B> victim = null;
+        for(HistoryEntry<B> entry : map.values()){
+            if(victim == null){
+                victim = entry;
+                continue;
+            }
+            //compare (uses+1)/memory without dividing
+            double value = (entry.uses + 1) * (double)victim.memory;
+            double victimValue = (victim.uses + 1) * (double)entry.memory;
+            if(value < victimValue || (value == victimValue && entry.lastUse < victim.lastUse)){
+                victim = entry;
+            }
+        }
+        return victim;
+    }
+    
+    private void remove(LatticeNode key){
+        HistoryEntry<B> entry = map.remove(key);
+        if(entry != null){
+            usedMemory -= entry.memory;
+            delete(index, entry.node.getTransformation(), 0);
+        }
+    }
+    
+    private void insert(HistoryEntry<B> entry){
+        int[] transformation = entry.node.getTransformation();
+        int size = entry.buffer.getSize();
+        IndexNode<B> indexNode = index;
+        for(int level : transformation){
+            indexNode.minSize = Math.min(indexNode.minSize, size);
+            if(indexNode.children == null){
+                indexNode.children = newChildren(level + 1);
+            }
+            else if(indexNode.children.length <= level){
+                indexNode.children = Arrays.copyOf(indexNode.children, level + 1);
+            }
+            if(indexNode.children[level] == null){
+                indexNode.children[level] = new IndexNode<>();
+            }
+            indexNode = indexNode.children[level];
+        }
+        indexNode.minSize = size;
+        indexNode.entry = entry;
+    }
+    
+    //creates a children array, as arrays of a generic type cannot be created directly
+    @SuppressWarnings("unchecked")
+    private static <B> IndexNode<B>[] newChildren(int length){
+        return new IndexNode[length];
+    }
+    
+    /**
+     * Removes a transformation from the index and updates the smallest sizes
+     * of the nodes on its path
+     * @return true if the index node is left empty
+     */
+    private boolean delete(IndexNode<B> indexNode, int[] transformation, int depth){
+        if(depth == transformation.length){
+            indexNode.entry = null;
+            indexNode.minSize = Integer.MAX_VALUE;
+            return true;
+        }
+        
+        int level = transformation[depth];
+        if(delete(indexNode.children[level], transformation, depth + 1)){
+            indexNode.children[level] = null;
+        }
+        
+        indexNode.minSize = Integer.MAX_VALUE;
+        for(IndexNode<B> child : indexNode.children){
+            if(child != null){
+                indexNode.minSize = Math.min(indexNode.minSize, child.minSize);
+            }
+        }
+        return indexNode.minSize == Integer.MAX_VALUE;
     }
     
     /**
@@ -82,6 +211,8 @@ public class HistoryBuffers{
      */
     public synchronized void clear() {
         map.clear();
+        index = new IndexNode<>();
+        usedMemory = 0;
     }
     
     /**
@@ -92,41 +223,63 @@ public class HistoryBuffers{
         return map.size();
     }
     
+    /**
+     * Returns the memory of the buffers in the cache.
+     * @return the estimated size in bytes.
+     */
+    public synchronized long usedMemory() {
+        return usedMemory;
+    }
+    
+    /**
+     * Returns the largest memory of the buffers in the cache so far.
+     * @return the estimated size in bytes.
+     */
+    public synchronized long peakMemory() {
+        return peakMemory;
+    }
+    
     /**
      * Returns a <code>Collection</code> that contains a copy of all cache entries.
      * @return a <code>Collection</code> with a copy of the cache content.
      */
-    public synchronized Collection<Map.Entry<LatticeNode, Buffer>> getAll() {
-        return new ArrayList<>(map.entrySet());
+    public synchronized Collection<Map.Entry<LatticeNode, B>> getAll() {
+        Collection<Map.Entry<LatticeNode, B>> entries = new ArrayList<>(map.size());
+        for(HistoryEntry<B> entry : map.values()){
+            entries.add(new AbstractMap.SimpleEntry<>(entry.node, entry.buffer));
+        }
+        return entries;
     }
     
-    public LatticeNode findClosestNode(LatticeNode node){
-        LatticeNode closestNode = null;
-        int bestSize = 0;
-        int nodeLenght = node.getTransformation().length;
-        int[] nodeTransf = node.getTransformation();
+    /**
+     * Finds the cached node with the smallest buffer among the nodes that
+     * are not more generalized than the given node in any dimension
+     * @param node the node
+     * @return the closest node, null if there is none in the cache
+     */
+    public synchronized LatticeNode findClosestNode(LatticeNode node){
+        HistoryEntry<B> closest = findClosest(index, node.getTransformation(), 0, null);
+        return (closest != null) ? closest.node : null;
+    }
+    
+    private HistoryEntry<B> findClosest(IndexNode<B> indexNode, int[] transformation, int depth, HistoryEntry<B> best){
+        if(best != null && indexNode.minSize >= best.buffer.getSize()){
+            return best;
+        }
+        if(depth == transformation.length){
+            return indexNode.entry;
+        }
+        if(indexNode.children == null){
+            return best;
+        }
         
-        for(Entry<LatticeNode, Buffer> entry : this.map.entrySet()){         
-            LatticeNode hnode = entry.getKey();
-            int[] hnodeTrasnf = hnode.getTransformation();
-            boolean isValid = true;
-            
-            for(int i=0; i<nodeLenght; i++){
-                if(hnodeTrasnf[i] > nodeTransf[i]){
-                    isValid = false;
-                    break;
-                }
+        int maxLevel = Math.min(transformation[depth], indexNode.children.length - 1);
+        for(int level=0; level<=maxLevel; level++){
+            if(indexNode.children[level] != null){
+                best = findClosest(indexNode.children[level], transformation, depth + 1, best);
             }
-            
-            if(isValid){
-                if((closestNode == null) || (entry.getValue().getSize() < bestSize)){
-                    closestNode = hnode;
-                    bestSize = entry.getValue().getSize();
-                }
-            }           
         }
-        
-        return closestNode;
+        return best;
     }
     
-}
\ No newline at end of file
+}
\ No newline at end of file
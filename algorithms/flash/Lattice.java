@@ -19,8 +19,15 @@
 package algorithms.flash;
 
 //import cern.colt.Arrays;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
  *
@@ -29,22 +36,68 @@ import java.util.Set;
 
 public class Lattice {
     private final int[] qidColumns;
-    /** The levels. */
-    private final LatticeNode[][] levels;
+    /** The lowest level of every dimension. */
+    private final int[] minLevels;
+    /** The highest level of every dimension. */
+    private final int[] maxLevels;
+    /** The place value of every dimension in the node ids. */
+    private final int[] offsets;
     /** The size. */
     private final int size;
+    /** The number of levels. */
+    private final int height;
+    //lowest and highest sum of the levels of the first i dimensions
+    private final int[] minSums;
+    private final int[] maxSums;
+    //one bit per node id, set from several threads by ParallelFlash
+    private final AtomicLongArray tagged;
+    private final AtomicLongArray anonymous;
     
     /**
-     * Initializes a lattice.
+     * Initializes a lattice. Nodes are not stored; the id of a node encodes
+     * its transformation in the mixed radix of the offsets, and nodes, their
+     * neighbours and the levels are computed from the ids when they are needed.
      *
      * @param qidColumns
-     * @param levels the levels
-     * @param numNodes the max levels
+     * @param minLevels the lowest level of every dimension
+     * @param maxLevels the highest level of every dimension
+     * @param offsets the place value of every dimension
+     * @param numNodes the number of nodes
      */
-    public Lattice(final int[] qidColumns, final LatticeNode[][] levels, final int numNodes) {
+    public Lattice(final int[] qidColumns, final int[] minLevels, final int[] maxLevels,
+            final int[] offsets, final int numNodes) {
         this.qidColumns = qidColumns;
-        this.levels = levels;
+        this.minLevels = minLevels;
+        this.maxLevels = maxLevels;
+        this.offsets = offsets;
         this.size = numNodes;
+        this.minSums = new int[maxLevels.length + 1];
+        this.maxSums = new int[maxLevels.length + 1];
+        for (int i = 0; i < maxLevels.length; i++) {
+            minSums[i + 1] = minSums[i] + minLevels[i];
+            maxSums[i + 1] = maxSums[i] + maxLevels[i];
+        }
+        this.height = maxSums[maxLevels.length] + 1;
+        this.tagged = new AtomicLongArray((int)(((long)numNodes + 63) >>> 6));
+        this.anonymous = new AtomicLongArray((int)(((long)numNodes + 63) >>> 6));
+    }
+    
+    /**
+     * Returns the node with the given id.
+     *
+     * @param id the id
+     * @return
+     */
+    public LatticeNode getNode(int id) {
+        final int[] transformation = new int[offsets.length];
+        int rest = id;
+        int level = 0;
+        for (int i = offsets.length - 1; i >= 0; i--) {
+            transformation[i] = rest / offsets[i] + minLevels[i];
+            rest -= (transformation[i] - minLevels[i]) * offsets[i];
+            level += transformation[i];
+        }
+        return new LatticeNode(this, id, transformation, level);
     }
     
     /**
@@ -53,22 +106,67 @@ public class Lattice {
      * @return
      */
     public LatticeNode getBottom() {
-        for (int i = 0; i<levels.length; i++) {
-            if (levels[i].length==1){
-                return levels[i][0];
-            } else if (levels[i].length > 1) {
-                throw new RuntimeException("Multiple bottom nodes!");
+        return getNode(0);
+    }
+    
+    /**
+     * Returns the nodes of a level, in the order of their ids.
+     *
+     * @param level the level
+     * @return
+     */
+    public LatticeNode[] getLevel(int level) {
+        return getLevel(level, false);
+    }
+    
+    /**
+     * Returns the nodes of a level that are not tagged yet, in the order of
+     * their ids. Only these nodes are created, so that the traversal does not
+     * hold whole levels of large lattices.
+     *
+     * @param level the level
+     * @return
+     */
+    public LatticeNode[] getUntaggedLevel(int level) {
+        return getLevel(level, true);
+    }
+    
+    private LatticeNode[] getLevel(int level, boolean untagged) {
+        List<LatticeNode> nodes = new ArrayList<>();
+        addLevelNodes(nodes, offsets.length - 1, level, 0, new int[offsets.length], level, untagged);
+        return nodes.toArray(new LatticeNode[nodes.size()]);
+    }
+    
+    /**
+     * Adds the nodes whose first dimensions sum up to the rest of a level,
+     * choosing the level of one dimension at a time from the last one.
+     */
+    private void addLevelNodes(List<LatticeNode> nodes, int dim, int rest, int id, int[] transformation, int level, boolean untagged) {
+        if (dim < 0) {
+            if (!untagged || !getBit(tagged, id)) {
+                nodes.add(new LatticeNode(this, id, transformation.clone(), level));
             }
+            return;
+        }
+        final int from = Math.max(minLevels[dim], rest - maxSums[dim]);
+        final int to = Math.min(maxLevels[dim], rest - minSums[dim]);
+        for (int value = from; value <= to; value++) {
+            transformation[dim] = value;
+            addLevelNodes(nodes, dim - 1, rest - value, id + (value - minLevels[dim]) * offsets[dim], transformation, level, untagged);
         }
-        throw new RuntimeException("Empty lattice!");
     }
     
     /**
-     * Returns all levels in the lattice.
+     * Returns all levels in the lattice. This creates every node, so it is
+     * meant for small lattices, e.g. for drawing them.
      *
      * @return
      */
     public LatticeNode[][] getLevels() {
+        final LatticeNode[][] levels = new LatticeNode[height][];
+        for (int i = 0; i < height; i++) {
+            levels[i] = getLevel(i);
+        }
         return levels;
     }
     
@@ -87,60 +185,193 @@ public class Lattice {
      * @return
      */
     public LatticeNode getTop() {
-        for (int i = levels.length - 1; i>=0; i--) {
-            if (levels[i].length==1){
-                return levels[i][0];
-            } else if (levels[i].length > 1) {
-                throw new RuntimeException("Multiple top nodes!");
+        return getNode(size - 1);
+    }
+    
+    /**
+     * Returns the successors of a node, one level higher in one dimension.
+     *
+     * @param node the node
+     * @return
+     */
+    LatticeNode[] getSuccessors(LatticeNode node) {
+        final int[] transformation = node.getTransformation();
+        int num = 0;
+        for (int i = 0; i < transformation.length; i++) {
+            if (transformation[i] < maxLevels[i]) {
+                num++;
             }
         }
-        throw new RuntimeException("Empty lattice!");
+        final LatticeNode[] successors = new LatticeNode[num];
+        num = 0;
+        for (int i = 0; i < transformation.length; i++) {
+            if (transformation[i] < maxLevels[i]) {
+                final int[] successor = transformation.clone();
+                successor[i]++;
+                successors[num++] = new LatticeNode(this, node.id + offsets[i], successor, node.getLevel() + 1);
+            }
+        }
+        return successors;
+    }
+    
+    /**
+     * Returns the predecessors of a node, one level lower in one dimension.
+     *
+     * @param node the node
+     * @return
+     */
+    LatticeNode[] getPredecessors(LatticeNode node) {
+        final int[] transformation = node.getTransformation();
+        int num = 0;
+        for (int i = 0; i < transformation.length; i++) {
+            if (transformation[i] > minLevels[i]) {
+                num++;
+            }
+        }
+        final LatticeNode[] predecessors = new LatticeNode[num];
+        num = 0;
+        for (int i = transformation.length - 1; i >= 0; i--) {
+            if (transformation[i] > minLevels[i]) {
+                final int[] predecessor = transformation.clone();
+                predecessor[i]--;
+                predecessors[num++] = new LatticeNode(this, node.id - offsets[i], predecessor, node.getLevel() - 1);
+            }
+        }
+        return predecessors;
+    }
+
+    /**
+     * Sets a bit, if it is not set already.
+     *
+     * @param bits the bits
+     * @param id the node id
+     * @return true if the bit was set by this call
+     */
+    private static boolean setBit(AtomicLongArray bits, int id) {
+        int word = id >>> 6;
+        long mask = 1L << id;
+        long old;
+        do {
+            old = bits.get(word);
+            if ((old & mask) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(word, old, old | mask));
+        return true;
+    }
+
+    private static boolean getBit(AtomicLongArray bits, int id) {
+        return (bits.get(id >>> 6) & (1L << id)) != 0;
+    }
+
+    public boolean isTagged(LatticeNode node) {
+        return getBit(tagged, node.id);
+    }
+
+    public boolean isAnonymous(LatticeNode node) {
+        return getBit(anonymous, node.id);
     }
 
     /**
-     * Sets the property to all predecessors of the given node.
+     * Sets the property to all predecessors of the given node. Tagged nodes
+     * are not visited again, since their predecessors are already tagged.
      *
      * @param node the node
+     * @return the number of nodes tagged by this call
      */
-    public void setTagDownwards(LatticeNode node) {
-        node.tag();
-        for(LatticeNode predecessor : node.getPredecessors()){
-            setTagDownwards(predecessor);
+    public int setTagDownwards(LatticeNode node) {
+        Deque<LatticeNode> stack = new ArrayDeque<>();
+        stack.push(node);
+        int count = 0;
+        while (!stack.isEmpty()) {
+            LatticeNode current = stack.pop();
+            if (!setBit(tagged, current.id)) {
+                continue;
+            }
+            count++;
+            for (LatticeNode predecessor : current.getPredecessors()) {
+                if (!isTagged(predecessor)) {
+                    stack.push(predecessor);
+                }
+            }
         }
+        return count;
     }
       
     /**
-     * Sets the property to all successors of the given node.
+     * Sets the property to all successors of the given node and marks them
+     * as anonymous. Tagged nodes are not visited again, since their
+     * successors are already tagged.
      *
      * @param node the node
-     * @param resultset
-     */
-    public void setTagUpwards(LatticeNode node, Set<LatticeNode> resultset) {
-        
-        node.tag();
-        resultset.add(node);
-        for(LatticeNode successor : node.getSuccessors()){
-            setTagUpwards(successor, resultset);
+     * @return the number of nodes tagged by this call
+     */
+    public int setTagUpwards(LatticeNode node) {
+        Deque<LatticeNode> stack = new ArrayDeque<>();
+        stack.push(node);
+        int count = 0;
+        while (!stack.isEmpty()) {
+            LatticeNode current = stack.pop();
+            //marked before the tag, so that a tagged node is never missing
+            setBit(anonymous, current.id);
+            if (!setBit(tagged, current.id)) {
+                continue;
+            }
+            count++;
+            for (LatticeNode successor : current.getSuccessors()) {
+                if (!isTagged(successor)) {
+                    stack.push(successor);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the anonymous nodes found so far.
+     *
+     * @return the ids of the anonymous nodes
+     */
+    public BitSet getAnonymous() {
+        long[] words = new long[anonymous.length()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = anonymous.get(i);
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Returns the anonymous nodes found so far as a set of nodes.
+     *
+     * @return the anonymous nodes
+     */
+    public Set<LatticeNode> getAnonymousNodes() {
+        BitSet bits = getAnonymous();
+        Set<LatticeNode> result = new HashSet<>();
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+            result.add(getNode(id));
         }
+        return result;
     }
     
     public void print(){
         System.out.println("Lattice for columns : " + Arrays.toString(this.qidColumns));
+        LatticeNode[][] levels = getLevels();
         for(int i = 0; i<levels.length; i++){
             System.out.println("level " + i);
             for(int j = 0; j<levels[i].length; j++){
-                System.out.println(levels[i][j] + " " + levels[i][j].isTagged());
+                System.out.println(levels[i][j] + " " + isTagged(levels[i][j]));
             }
             System.out.println();
         }
     }
     
     public int getHeight(){
-        return levels.length;
+        return height;
     }
 
     public int[] getQidColumns() {
         return qidColumns;
     }
     
-}
\ No newline at end of file
+}
\ No newline at end of file
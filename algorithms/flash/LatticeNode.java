@@ -28,30 +28,27 @@ import java.util.Arrays;
 public class LatticeNode {
     /** The id. */
     public final int id;
+    /** The lattice of the node. */
+    private final Lattice lattice;
     /** The level. */
-    private int level;
-    /** The predecessors. */
-    private LatticeNode[] predecessors;
-    /** The upwards. */
-    private LatticeNode[] successors;
-    /** The down index. */
-    private int preIndex;
-    /** The up index. */
-    private int sucIndex;
+    private final int level;
     /** The transformation. */
-    private int[] transformation;
-    
-    private boolean tagged = false;
+    private final int[] transformation;
     
     /**
-     * Instantiates a new node.
+     * Instantiates a new node. Nodes are created by the lattice when they are
+     * needed, and two nodes with the same id are equal.
      *
-     * @param id
+     * @param lattice the lattice
+     * @param id the id, encoding the transformation
+     * @param transformation the transformation
+     * @param level the level
      */
-    public LatticeNode(int id) {
+    LatticeNode(Lattice lattice, int id, int[] transformation, int level) {
+        this.lattice = lattice;
         this.id = id;
-        this.preIndex = 0;
-        this.sucIndex = 0;
+        this.transformation = transformation;
+        this.level = level;
     }
     
     /*
@@ -99,21 +96,21 @@ public class LatticeNode {
     }
        
     /**
-     * Returns the predecessors.
+     * Returns the predecessors, computed by the lattice.
      *
      * @return
      */
     public LatticeNode[] getPredecessors() {
-        return predecessors;
+        return lattice.getPredecessors(this);
     }
        
     /**
-     * Returns the successors.
+     * Returns the successors, computed by the lattice.
      *
      * @return
      */
     public LatticeNode[] getSuccessors() {
-        return successors;
+        return lattice.getSuccessors(this);
     }
        
     /**
@@ -135,53 +132,6 @@ public class LatticeNode {
         return Arrays.hashCode(transformation);
     }
    
-    /**
-     * Sets the transformation.
-     *
-     * @param transformation
-     * @param level
-     */
-    public void setTransformation(int[] transformation, int level) {
-        this.transformation = transformation;
-        this.level = level;
-    }
-   
-    /**
-     * Sets the predecessors.
-     *
-     * @param nodes
-     */
-    protected void setPredecessors(LatticeNode[] nodes) {
-        predecessors = nodes;
-    }
-    
-    /**
-     * Sets the successors.
-     *
-     * @param nodes
-     */
-    protected void setSuccessors(LatticeNode[] nodes) {
-        successors = nodes;
-    }
-       
-    /**
-     * Adds a predecessor.
-     *
-     * @param predecessor
-     */
-    void addPredecessor(LatticeNode predecessor) {
-        predecessors[preIndex++] = predecessor;
-    }
-       
-    /**
-     * Adds a successor.
-     *
-     * @param successor
-     */  
-    void addSuccessor(LatticeNode successor) {
-        successors[sucIndex++] = successor;
-    }
-    
     @Override
     public String toString() {
         return Arrays.toString(this.transformation);
@@ -190,13 +140,5 @@ public class LatticeNode {
     public int[] getArray(){
        return this.transformation;
     }
-
-    public boolean isTagged() {
-        return tagged;
-    }
-
-    public void tag() {
-        this.tagged = true;
-    }
     
 }
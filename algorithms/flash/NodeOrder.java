@@ -0,0 +1,105 @@
+/* 
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena" 
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ */
+package algorithms.flash;
+
+/**
+ * The order in which Flash visits lattice nodes: by level, then by average
+ * generalization, then by the share of distinct values kept. The terms of
+ * every dimension and level are computed once, and every node gets its keys
+ * once per sort or heap insertion instead of once per comparison.
+ */
+public class NodeOrder {
+    //level divided by the height of the dimension
+    private final double[][] generalization;
+    //distinct values at a level divided by the distinct values of the leaves
+    private final double[][] distinct;
+
+    /**
+     * Precomputes the terms of every dimension
+     * @param maxLevels the highest level of every dimension
+     * @param distinctValues the number of distinct values at every level of every dimension
+     */
+    public NodeOrder(int[] maxLevels, int[][] distinctValues){
+        this.generalization = new double[maxLevels.length][];
+        this.distinct = new double[maxLevels.length][];
+        for(int i=0; i<maxLevels.length; i++){
+            generalization[i] = new double[maxLevels[i] + 1];
+            for(int level=0; level<generalization[i].length; level++){
+                generalization[i][level] = level / (double) maxLevels[i];
+            }
+            distinct[i] = new double[distinctValues[i].length];
+            for(int level=0; level<distinct[i].length; level++){
+                distinct[i][level] = distinctValues[i][level] / (double) distinctValues[i][0];
+            }
+        }
+    }
+
+    /**
+     * Computes the average generalization of a transformation, the same as
+     * LatticeNode.getAvgGeneralization
+     * @param transformation the transformation
+     * @return the average generalization
+     */
+    public double getAvgGeneralization(int[] transformation){
+        double sum = 0.0;
+        for(int i=0; i<transformation.length; i++){
+            sum += generalization[i][transformation[i]];
+        }
+        return sum / (double) transformation.length;
+    }
+
+    /**
+     * Computes the distinct values score of a transformation, the same as
+     * LatticeNode.getDistinctValuesAvgGen
+     * @param transformation the transformation
+     * @return the score
+     */
+    public double getDistinctValuesAvgGen(int[] transformation){
+        double sum = 0.0;
+        for(int i=0; i<transformation.length; i++){
+            sum += distinct[i][transformation[i]];
+        }
+        sum /= transformation.length;
+        return 1 - sum;
+    }
+
+    /**
+     * Compares the keys of two nodes
+     * @return a negative number if the first node comes first, a positive one
+     * if the second does, 0 if they are equal
+     */
+    public static int compare(int level1, double avg1, double distinct1, int level2, double avg2, double distinct2){
+        if(level1 != level2){
+            return (level1 < level2) ? -1 : 1;
+        }
+        if(avg1 < avg2){
+            return -1;
+        }
+        else if(avg1 > avg2){
+            return 1;
+        }
+        if(distinct1 < distinct2){
+            return -1;
+        }
+        else if(distinct1 > distinct2){
+            return 1;
+        }
+        return 0;
+    }
+}
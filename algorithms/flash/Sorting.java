@@ -18,55 +18,106 @@
  */
 package algorithms.flash;
 
-import java.util.Arrays;
-import java.util.Comparator;
-
 /**
  *
  * 
  */
 public class Sorting {
-    private final int[] maxLevels;
-    private final int[][] distinctValues;
+    private final NodeOrder order;
       
     public Sorting (int[] maxLevels, int[][] distinctValues ){
-        this.maxLevels = maxLevels;
-        this.distinctValues = distinctValues;
+        this.order = new NodeOrder(maxLevels, distinctValues);
     }
     
+    /**
+     * Sorts nodes in place. The keys of every node are computed once, and
+     * nodes with equal keys keep their order.
+     * @param nodes the nodes
+     * @return the sorted nodes
+     */
     public LatticeNode[] sort(LatticeNode[] nodes){
         if ( nodes.length > 1){
-            Arrays.sort(nodes, new LatticeNodeComparator());
+            int[] levels = new int[nodes.length];
+            double[] avgs = new double[nodes.length];
+            double[] distincts = new double[nodes.length];
+            int[] positions = new int[nodes.length];
+            for(int i=0; i<nodes.length; i++){
+                levels[i] = nodes[i].getLevel();
+                avgs[i] = order.getAvgGeneralization(nodes[i].getTransformation());
+                distincts[i] = order.getDistinctValuesAvgGen(nodes[i].getTransformation());
+                positions[i] = i;
+            }
+            
+            mergeSort(positions, new int[nodes.length], 0, nodes.length, levels, avgs, distincts);
+            
+            LatticeNode[] sorted = new LatticeNode[nodes.length];
+            for(int i=0; i<nodes.length; i++){
+                sorted[i] = nodes[positions[i]];
+            }
+            System.arraycopy(sorted, 0, nodes, 0, nodes.length);
         }
         return nodes;  
     }
     
-    class LatticeNodeComparator implements Comparator<LatticeNode>{
-        @Override
-        public int compare(LatticeNode n1, LatticeNode n2) {
-            if(n1.getLevel() < n2.getLevel()){
-                return -1;
+    /**
+     * Returns the first node of the sorted order that is not tagged, without
+     * sorting the nodes.
+     * @param nodes the nodes
+     * @param lattice the lattice of the nodes
+     * @return the first untagged node, null if all nodes are tagged
+     */
+    public LatticeNode findFirstUntagged(LatticeNode[] nodes, Lattice lattice){
+        LatticeNode first = null;
+        int firstLevel = 0;
+        double firstAvg = 0;
+        double firstDistinct = 0;
+        for(LatticeNode node : nodes){
+            if(lattice.isTagged(node)){
+                continue;
             }
-            else if(n1.getLevel() > n2.getLevel()){
-                return 1;
+            int level = node.getLevel();
+            double avg = order.getAvgGeneralization(node.getTransformation());
+            double distinct = order.getDistinctValuesAvgGen(node.getTransformation());
+            if(first == null || NodeOrder.compare(level, avg, distinct, firstLevel, firstAvg, firstDistinct) < 0){
+                first = node;
+                firstLevel = level;
+                firstAvg = avg;
+                firstDistinct = distinct;
+            }
+        }
+        return first;
+    }
+    
+    /**
+     * Stable merge sort of positions by the keys of the nodes
+     */
+    private static void mergeSort(int[] positions, int[] temp, int from, int to, int[] levels, double[] avgs, double[] distincts){
+        if(to - from < 2){
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(positions, temp, from, mid, levels, avgs, distincts);
+        mergeSort(positions, temp, mid, to, levels, avgs, distincts);
+        
+        int i = from;
+        int j = mid;
+        int k = from;
+        while(i < mid && j < to){
+            int a = positions[i];
+            int b = positions[j];
+            if(NodeOrder.compare(levels[b], avgs[b], distincts[b], levels[a], avgs[a], distincts[a]) < 0){
+                temp[k++] = positions[j++];
             }
             else{
-                if(n1.getAvgGeneralization(maxLevels) < n2.getAvgGeneralization(maxLevels)){
-                    return -1;
-                }
-                else if(n1.getAvgGeneralization(maxLevels) > n2.getAvgGeneralization(maxLevels)){
-                    return 1;
-                }
-                else{
-                    if(n1.getDistinctValuesAvgGen(distinctValues) < n2.getDistinctValuesAvgGen(distinctValues)){
-                        return -1;
-                    }
-                    else if(n1.getDistinctValuesAvgGen(distinctValues) > n2.getDistinctValuesAvgGen(distinctValues)){
-                        return 1;
-                    }
-                }
-            }            
-            return 0;
-        }       
-    }   
+                temp[k++] = positions[i++];
+            }
+        }
+        while(i < mid){
+            temp[k++] = positions[i++];
+        }
+        while(j < to){
+            temp[k++] = positions[j++];
+        }
+        System.arraycopy(temp, from, positions, from, to - from);
+    }
 }
@@ -19,6 +19,7 @@
 package algorithms.kmanonymity;
 
 import algorithms.Algorithm;
+import algorithms.RunMetrics;
 import algorithms.flash.LatticeNode;
 import data.Data;
 import dictionary.DictionaryString;
@@ -35,6 +36,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  *
@@ -46,13 +48,36 @@ public class Apriori implements Algorithm {
     Map<Integer, Hierarchy> hierarchies = null;
     Hierarchy hierarchy = null;
     Trie trie = null;
-    int nextIndex = 0;
-    int[] testGens = null;
+    //distinct translated transactions of the current pass, with their rows
+    double[][] transactions = null;
+    int[] multiplicities = null;
     int[][] pointMap = null;
+    //ancestors of every node from the root down, for the branch checks of the combinations
+    int[][] chains = null;
     double[] costs = null;
+    //weight of the leaves under every node, and their cost under the current generalization
+    double[] subtreeWeights = null;
+    double[] subtreeCosts = null;
     int domainSize = -1;
     int k = -1;
     int m = -1;
+    RunMetrics metrics = new RunMetrics();
+    ForkJoinPool pool = null;
+    int parallelism = -1;
+    //fewest transactions counted by a task of the parallel population
+    int minSlice = 4096;
+    //slices per thread of the parallel population, more slices keep the slice trees smaller
+    int slicesPerThread = 4;
+    
+    public Apriori(int parallelismNum){
+        pool = new ForkJoinPool(parallelismNum);
+        parallelism = pool.getParallelism();
+    }
+    
+    public Apriori(){
+        pool = new ForkJoinPool();
+        parallelism = pool.getParallelism();
+    }
     
     @Override
     public void setDataset(Data dataset) {
@@ -80,82 +105,99 @@ public class Apriori implements Algorithm {
         
         for(int i=1; i<=m; i++){
             System.out.println("m = " + i);
+            long start = System.nanoTime();
             populateTree(i);
+            metrics.addTime("populate.m" + i, start);
+            metrics.set("trie.size.m" + i, trie.getSize());
+            start = System.nanoTime();
             fixAll();           
+            metrics.addTime("fix.m" + i, start);
         }
     }
     
     public void populateTree(int size){
-        double[] transaction = null;
-        Set <double[]> combinations;
-        
-        /*DictionaryString dict = dataset.getDictionary(0);
-        
-        for (Map.Entry<Integer,String> entry : dict.idToString.entrySet()) {
-            System.out.println(entry.getKey()+" : "+entry.getValue());
-        }*/
-        
-        while((transaction = getNextTransaction()) != null){
-            /*System.out.println("transaction = ");
-            for (int i = 0 ; i < transaction.length ; i ++ ){
-                System.out.println(transaction[i]+",");
-            }*/
-            
-            //expand transaction
-            Set<Double> expandedTransaction = expandTransaction(transaction);
-            
-            //generate combinations
-            combinations = Combinations.getCombinations(expandedTransaction, size, hierarchy);
-            
-            /*System.out.println("combinations = ");
-            for (double[] s : combinations) {
-                for ( int i = 0 ; i < s.length ; i++){
-                    System.out.print(s[i] + ",");
+        collapseTransactions();
+        metrics.set("transactions.distinct.m" + size, transactions.length);
+        
+        int slices = parallelism * slicesPerThread;
+        int slice = Math.max(minSlice, (transactions.length + slices - 1) / slices);
+        if(transactions.length <= slice){
+            for(int row=0; row<transactions.length; row++){
+                insertCombinations(row, size, trie);
+            }
+        }
+        else{
+            //every task counts a slice of the transactions and merges it into the tree
+            pool.invoke(new TriePopulator(this, trie, 0, transactions.length, slice, size));
+        }
+    }
+    
+    /**
+     * Collapses the transactions that have the same items after translation,
+     * keeping every distinct transaction once with the number of its rows, in
+     * order of first appearance. Distinct transactions are found through an
+     * open addressing table of their positions
+     */
+    private void collapseTransactions(){
+        double[][] distinct = new double[16][];
+        int[] counts = new int[16];
+        int distinctNum = 0;
+        //position of a distinct transaction plus one, 0 for empty slots
+        int[] table = new int[Integer.highestOneBit(Math.max(data.length, 1)) << 2];
+        int mask = table.length - 1;
+        
+        for(double[] originalTransaction : data){
+            //translated items, sorted and without duplicates
+            double[] anonTransaction = new double[originalTransaction.length];
+            for(int i=0; i<originalTransaction.length; i++){
+                anonTransaction[i] = getTranslation(originalTransaction[i]);
+            }
+            Arrays.sort(anonTransaction);
+            int length = 0;
+            for(int i=0; i<anonTransaction.length; i++){
+                if(length == 0 || anonTransaction[i] != anonTransaction[length-1]){
+                    anonTransaction[length++] = anonTransaction[i];
                 }
-                System.out.println("end");
-            }*/
-
+            }
+            if(length < anonTransaction.length){
+                anonTransaction = Arrays.copyOf(anonTransaction, length);
+            }
             
-            //insert combinations to count-tree
-            if (combinations != null && !combinations.isEmpty()){
-                for(double[] comb : combinations ){
-                    trie.insert(comb);
+            int h = Arrays.hashCode(anonTransaction) * 0x9E3779B9;
+            int slot = (h ^ (h >>> 16)) & mask;
+            while(table[slot] != 0 && !Arrays.equals(distinct[table[slot] - 1], anonTransaction)){
+                slot = (slot + 1) & mask;
+            }
+            if(table[slot] == 0){
+                if(distinctNum == distinct.length){
+                    distinct = Arrays.copyOf(distinct, distinctNum << 1);
+                    counts = Arrays.copyOf(counts, distinctNum << 1);
                 }
+                distinct[distinctNum] = anonTransaction;
+                table[slot] = ++distinctNum;
             }
-            
-            //System.out.println("i am hereeeeeee");
+            counts[table[slot] - 1]++;
         }
         
-        //System.out.println("Trieeeeeeeeeeeee "  );
-        //trie.printTree(trie.getRoot());
-        //System.out.println("trie = " + trie.getRoot());
+        transactions = Arrays.copyOf(distinct, distinctNum);
+        multiplicities = Arrays.copyOf(counts, distinctNum);
     }
     
-    private double[] getNextTransaction(){
-        if(nextIndex == data.length){
-            nextIndex = 0;
-            return null;
-        }
-        
-        double[] originalTransaction = data[nextIndex];
-        double[] anonTransaction = new double[originalTransaction.length];
-        for(int i=0; i<originalTransaction.length; i++){
-            anonTransaction[i] = getTranslation(originalTransaction[i]);
-        }
-        nextIndex++;
-        
-        //System.out.println("originalTransaction = ");
-        /*for (int i = 0 ; i < originalTransaction.length ; i ++ ){
-            System.out.println(originalTransaction[i]+",");
-        }
-        
-        //System.out.println("anonTransaction = ");
-        for (int i = 0 ; i < anonTransaction.length ; i ++ ){
-            System.out.println(anonTransaction[i]+",");
-        }*/
-        
-        
-        return anonTransaction;
+    /**
+     * Inserts to a count tree the combinations of a distinct transaction,
+     * once for every row of the transaction
+     * @param row the position of the distinct transaction
+     * @param size the number of items in a combination
+     * @param target the count tree
+     */
+    void insertCombinations(int row, int size, Trie target){
+        //expand transaction
+        Set<Double> expandedTransaction = expandTransaction(transactions[row]);
+        int count = multiplicities[row];
+        
+        //generate combinations and insert them to count-tree
+        Combinations.forEachCombination(Combinations.toArray(expandedTransaction), size, chains,
+                comb -> target.insert(comb, count));
     }
     
     private double getTranslation(double point) {
@@ -164,11 +206,11 @@ public class Apriori implements Algorithm {
     
     private void fixAll(){
         
-        TrieNode curNode;
+        int curNode;
         
         //in preorder count tree traversal
-        while((curNode = trie.preorderNext()) != null){
-            Double nodeValue = curNode.getValue();
+        while((curNode = trie.preorderNext()) != -1){
+            double nodeValue = trie.getValue(curNode);
             //System.out.println("curNode = " + curNode +"/t nodeValue = " + nodeValue );
             
             //bypass if already been generalized
@@ -176,13 +218,14 @@ public class Apriori implements Algorithm {
                 continue;
             
             //fix if leaf with support < k
-            if(curNode.isLeaf() && (curNode.getSupport() < k)){
-                List<Double> itemset = curNode.getItemset();
+            if(trie.isLeaf(curNode) && (trie.getSupport(curNode) < k)){
+                List<Double> itemset = trie.getItemset(curNode);
                 /*if(itemset.size() == 4){
                     System.out.println(itemset);
                 }
-                System.out.println("pre " + itemset + " " + curNode.getSupport());*/
+                System.out.println("pre " + itemset + " " + trie.getSupport(curNode));*/
                 fix(itemset);
+                metrics.increment("fixes");
             }
         }
         
@@ -297,6 +340,11 @@ public class Apriori implements Algorithm {
         throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
     
+    @Override
+    public RunMetrics getMetrics() {
+        return metrics;
+    }
+    
     private void fix(List<Double> prefix) {
         Set<Double> domain = expandTransaction(prefix);
         
@@ -326,6 +374,7 @@ public class Apriori implements Algorithm {
             return;
         
         Set<Double> children = this.hierarchy.getChildrenIds(generalized);
+        updateSubtreeCosts((int)generalized);
         if(children != null){
             if(l == 1){
                 for(Double child : children){
@@ -391,12 +440,6 @@ public class Apriori implements Algorithm {
         List<Integer> nodeIds = this.hierarchy.getNodeIdsInLevel(0);
         domainSize = nodeIds.size();
         
-        //allocate and init testgens
-        this.testGens = new int[domainSize];
-        for (int i=0;i<domainSize;i++) {
-            testGens[i] = -1;
-        }
-        
         //get root id
         String strValue = (String)this.hierarchy.getRoot();
         int maxId = this.hierarchy.getDictionary().getStringToId(strValue);
@@ -404,6 +447,9 @@ public class Apriori implements Algorithm {
         //allocate and init pointMap
         pointMap = new int[maxId + 1][];
         costs = new double[maxId + 1];
+        subtreeWeights = new double[maxId + 1];
+        subtreeCosts = new double[maxId + 1];
+        chains = Combinations.ancestorChains(this.hierarchy, maxId);
         
         for(int height=0; height<this.hierarchy.getHeight(); height++){
             List<Integer> nodeIdsInLevel = this.hierarchy.getNodeIdsInLevel(height);
@@ -413,7 +459,7 @@ public class Apriori implements Algorithm {
                 pointMap[nodeId][1] = nodeId;       //generalized value
                 pointMap[nodeId][2] = height;       //level
                 
-                //calculate costs
+                //calculate costs, every leaf starts at cost 0
                 costs[nodeId] = 0;
                 if(height > 0){
                     Set<Double> children = this.hierarchy.getChildrenIds(nodeId);
@@ -426,100 +472,115 @@ public class Apriori implements Algorithm {
                             costs[nodeId] = costs[nodeId]+costs[child.intValue()];
                         }
                     }
+                    if(children != null){
+                        for(Double child : children){
+                            subtreeWeights[nodeId] += subtreeWeights[child.intValue()];
+                        }
+                    }
+                }
+                else{
+                    subtreeWeights[nodeId] = this.hierarchy.getWeight((double)nodeId);
                 }
             }
         }
     }
     
+    /**
+     * Computes the cost that a candidate generalization adds to the current
+     * one, from the subtrees of the nodes it generalizes. Later items of the
+     * candidate overwrite the leaves of earlier ones, so the items are read
+     * backwards and every item counts only the leaves not taken yet
+     * @param comb the candidate itemset, -1 for dropped items
+     * @param base the itemset that is fixed
+     * @return the added cost
+     */
     public double getAddedCost(double[] comb, List<Double> base){
-        double existingCost = 0;
-        double newCost = 0;
+        double added = 0;
+        //roots of the disjoint subtrees already taken by later items
+        int[] taken = new int[comb.length];
+        int takenNum = 0;
         
-        resetTestGens();
-        
-        for(int i = 0; i<comb.length; i++){
+        for(int i=comb.length-1; i>=0; i--){
             double anonItem = comb[i];
-            if(anonItem != -1 && (anonItem != base.get(i))){
-                generalizeTest(anonItem);
+            if(anonItem == -1 || (anonItem == base.get(i)) || getLevel(anonItem) == 0){
+                continue;
             }
-        }
-        
-        existingCost = getTotalCost();
-        newCost = getTestCost();
-        
-        return (newCost - existingCost);
-    }
-    
-    private void resetTestGens(){
-        for(int i=0; i<domainSize; i++){
-            testGens[i] = pointMap[i][1];
-        }
-    }
-    
-    private void generalizeTest(double generalized) {
-        int l = getLevel(generalized);
-        
-        if(l == 0)
-            return;
-        
-        Set<Double> children = this.hierarchy.getChildrenIds(generalized);
-        if(children != null){
-            if (l == 1){
-                for(Double child : children){
-                    testGens[child.intValue()] = (int)generalized;
+            
+            int generalized = (int)anonItem;
+            boolean inside = false;
+            for(int j=0; j<takenNum; j++){
+                if(isAncestorOrSelf(taken[j], generalized)){
+                    inside = true;
+                    break;
                 }
             }
-            else{
-                for(Double child : children){
-                    genTest(child, generalized);
+            if(inside){
+                continue;
+            }
+            
+            //leaves of the subtree not taken yet, the taken subtrees in it are replaced by it
+            double weight = subtreeWeights[generalized];
+            double cost = subtreeCosts[generalized];
+            int kept = 0;
+            for(int j=0; j<takenNum; j++){
+                if(isAncestorOrSelf(generalized, taken[j])){
+                    weight -= subtreeWeights[taken[j]];
+                    cost -= subtreeCosts[taken[j]];
+                }
+                else{
+                    taken[kept++] = taken[j];
                 }
             }
+            taken[kept++] = generalized;
+            takenNum = kept;
+            
+            added += costs[generalized]*weight - cost;
         }
         
+        return added;
     }
     
-    private void genTest(double o, double g){
-        if(getLevel(o) == 0){
-            testGens[(int)o] = (int)g;
+    private boolean isAncestorOrSelf(double ancestor, double node){
+        while(node != -1){
+            if(node == ancestor){
+                return true;
+            }
+            node = this.hierarchy.getParentId(node);
         }
-        else{
-            Set<Double> children = this.hierarchy.getChildrenIds(o);
-            if(children != null){
+        return false;
+    }
+    
+    /**
+     * Updates the costs of the subtrees after all leaves under a node have
+     * been generalized to it
+     * @param generalized the node
+     */
+    private void updateSubtreeCosts(int generalized){
+        double before = subtreeCosts[generalized];
+        
+        List<Integer> toVisit = new ArrayList<>();
+        toVisit.add(generalized);
+        while(!toVisit.isEmpty()){
+            int node = toVisit.remove(toVisit.size() - 1);
+            subtreeCosts[node] = costs[generalized]*subtreeWeights[node];
+            Set<Double> children = this.hierarchy.getChildrenIds(node);
+            if(children != null && getLevel(node) > 0){
                 for(Double child : children){
-                    genTest(child, g);
+                    toVisit.add(child.intValue());
                 }
             }
         }
-    }
-    
-    private int getLevel(double point){
-        return this.hierarchy.getLevel(point);
-    }
-    
-    private double getTotalCost() {
-        double res = 0;
         
-        for(int i=0; i<domainSize; i++){
-            res += (costs[pointMap[i][1]]*this.hierarchy.getWeight(i));
+        double difference = subtreeCosts[generalized] - before;
+        double parent = this.hierarchy.getParentId(generalized);
+        while(parent != -1){
+            subtreeCosts[(int)parent] += difference;
+            parent = this.hierarchy.getParentId(parent);
         }
-        
-        return res;
     }
     
-    private double getTestCost() {
-        double res = 0;
-        
-        for(int i=0; i<domainSize; i++){
-            if (testGens[i] == 49 ||
-                testGens[i] == 45 ||
-                testGens[i] == 46 ||
-                testGens[i] == 47 || 
-                testGens[i] == 48){
-            }
-            res += (costs[testGens[i]]*this.hierarchy.getWeight(i));
-        }
-        
-        return res;
+    private int getLevel(double point){
+        return this.hierarchy.getLevel(point);
     }
     
     private String print(List<Double> list){
@@ -18,12 +18,10 @@
  */
 package algorithms.kmanonymity;
 
-import static com.google.common.collect.Collections2.orderedPermutations;
 import hierarchy.Hierarchy;
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 
 /**
@@ -59,89 +57,125 @@ public class Combinations {
         }
     }
     
-    public static Set <double[]> getCombinations(Set<Double> domain,int size, Hierarchy h){
-        ArrayList<Integer> index = null;
-        int limit = -1;
-        Set <double[]> distinct;
-        
-        //System.out.println("size = " + size);
-        if ( size > domain.size() ){
-            return null;
+    /**
+     * Copies a set of items to an array, in the iteration order of the set
+     * @param domain the items
+     * @return the items as ints
+     */
+    public static int[] toArray(Set<Double> domain){
+        int[] items = new int[domain.size()];
+        int i = 0;
+        for(double d : domain){
+            items[i++] = (int)d;
         }
-        
-        index = new ArrayList<Integer>();
-        distinct = new HashSet<double[]>();
-        limit = domain.size() - size;
-        
-        for ( int i = 0 ; i < limit ; i ++){
-            index.add(0);
+        return items;
+    }
+    
+    /**
+     * Builds the chain of ancestors of every node of a hierarchy, once per
+     * hierarchy. The chain of a node holds its ancestors from the root down
+     * and ends with the node itself, so its depth is its length minus one
+     * @param h the hierarchy
+     * @param maxId the largest id of the hierarchy
+     * @return the chain of every id, null for ids that are not in the hierarchy
+     */
+    public static int[][] ancestorChains(Hierarchy h, int maxId){
+        int[][] chains = new int[maxId + 1][];
+        for(int level=h.getHeight()-1; level>=0; level--){
+            List<Integer> nodeIds = h.getNodeIdsInLevel(level);
+            for(int nodeId : nodeIds){
+                int parent = (int)h.getParentId(nodeId);
+                int[] parentChain = (parent >= 0) ? chains[parent] : null;
+                if(parentChain == null){
+                    chains[nodeId] = new int[]{nodeId};
+                }
+                else{
+                    int[] chain = new int[parentChain.length + 1];
+                    System.arraycopy(parentChain, 0, chain, 0, parentChain.length);
+                    chain[parentChain.length] = nodeId;
+                    chains[nodeId] = chain;
+                }
+            }
         }
-        for ( int i = limit ; i < domain.size() ; i++ ){
-            index.add(1);
+        return chains;
+    }
+    
+    /**
+     * Checks if two items are in the same branch of the hierarchy, that is
+     * one is an ancestor of the other
+     * @param chains the ancestor chains of the hierarchy
+     * @param a an item
+     * @param b another item
+     * @return true if the items are in the same branch
+     */
+    private static boolean sameBranch(int[][] chains, int a, int b){
+        int[] chainA = chains[a];
+        int[] chainB = chains[b];
+        if(chainA.length <= chainB.length){
+            return chainB[chainA.length - 1] == a;
+        }
+        return chainA[chainB.length - 1] == b;
+    }
+    
+    /**
+     * Enumerates the combinations of items with no two items in the same
+     * branch of the hierarchy, walking the positions of the items in
+     * lexicographic order and skipping an item as soon as it is an ancestor
+     * or descendant of one already chosen. Every combination keeps the order
+     * of the items, and is passed in the same buffer, so the action has to
+     * copy it to keep it
+     * @param items the distinct items
+     * @param size the number of items in a combination
+     * @param chains the ancestor chains of the hierarchy, from ancestorChains
+     * @param action called with every combination
+     * @return the number of combinations
+     */
+    public static int forEachCombination(int[] items, int size, int[][] chains, Consumer<double[]> action){
+        int n = items.length;
+        if(size <= 0 || size > n){
+            return 0;
         }
         
-        double[] temp ;//= new Double[];
-        boolean overlaps = false;
-        
-        int ii = 0;
+        double[] buffer = new double[size];
+        int[] chosen = new int[size];
+        int count = 0;
+        int level = 0;
+        chosen[0] = -1;
         
-        for (List<Integer> perm : orderedPermutations(index)) {
-            temp = new double[size];
-            int countTemp = 0;
-            ii = 0;
-            //System.out.println(perm.toString());
-            for (double d : domain){
-                //System.out.println("ii = " + ii);
-                if ( perm.get(ii).equals(1)){
-                    //System.out.println("i am here");
-                    overlaps = false;
-                    for (int j = 0 ; j < countTemp ; j ++ ){
-                        if (sameBranch(d, temp[j], h)){
-                            overlaps = true;
-                            break;
-                        }
-                    }
-                    if (!overlaps){
-                        temp[countTemp] = (int)d;
-                        countTemp ++;
-                    }
-                    else{
+        while(level >= 0){
+            //next position at this level that does not share a branch with the chosen ones
+            int i = chosen[level] + 1;
+            for(; i <= n - size + level; i++){
+                boolean overlaps = false;
+                for(int j=0; j<level; j++){
+                    if(sameBranch(chains, items[chosen[j]], items[i])){
+                        overlaps = true;
                         break;
                     }
                 }
-                ii++;
+                if(!overlaps){
+                    break;
+                }
             }
-            if ( !overlaps ){
-                distinct.add(temp);
+            
+            if(i > n - size + level){
+                level--;
+                continue;
             }
-        }
-        
-        return distinct;
-    }
-    
-    private static boolean sameBranch(double first, double second, Hierarchy h){
-        if(first == second)
-            return true;
-        double tmp = first;
-        if (first < second){
-            while (tmp != -1){
-                tmp = h.getParentId(tmp);
-                if (tmp == second)
-                    return true;
-                if (tmp > second)
-                    return false;
+            
+            chosen[level] = i;
+            buffer[level] = items[i];
+            if(level == size - 1){
+                action.accept(buffer);
+                count++;
+            }
+            else{
+                level++;
+                chosen[level] = i;
             }
-            return false;
-        }
-        tmp = second;
-        while (tmp != -1){
-            tmp = h.getParentId(tmp);
-            if (tmp == first)
-                return true;
-            if (tmp > first)
-                return false;
         }
-        return false;
+        
+        return count;
     }
     
 }
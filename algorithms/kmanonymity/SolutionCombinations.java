@@ -103,9 +103,9 @@ public class SolutionCombinations {
                 }
                 
                 Arrays.sort(temp);
-                TrieNode node = trie.searchNode(temp);
+                int node = trie.searchNode(temp);
                 
-                if(node.getSupport() >= k){
+                if(node != -1 && trie.getSupport(node) >= k){
                     double score = alg.getAddedCost(temp, base);
                     if(!results.containsKey(score)){
                         results.put(score, temp);
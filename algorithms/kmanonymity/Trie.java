@@ -19,88 +19,190 @@
 package algorithms.kmanonymity;
 
 import hierarchy.Hierarchy;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
-import java.util.Stack;
 
 /**
- *
+ * Count tree of the itemsets of the transactions, kept in primitive arrays.
+ * Nodes are ints, with the root at 0, and every node has its item, parent
+ * and support. The children are found by parent and item in an open
+ * addressing table of node ids, and for the preorder traversal they are
+ * sorted by item into child ranges, rebuilt after new nodes are inserted.
  * @author serafeim
  */
 public class Trie {
+    private static final int root = 0;
+    private static final float loadFactor = 0.5f;
     
     int maxLevel = -1;
     Hierarchy h = null;
-    TrieNode root;
-    Stack toVisit = new Stack();
+    //number of nodes, without the root
+    int size = 0;
+    int[] items = null;
+    int[] parents = null;
+    int[] supports = null;
+    //nodes by parent and item, 0 for empty slots as the root is no child
+    int[] table = null;
+    int threshold = 0;
+    
+    //children of every node sorted by item, valid while ranges is true
+    int[] childStart = null;
+    int[] childNodes = null;
+    boolean ranges = false;
+    //nodes still to visit in the preorder traversal, null before it starts
+    int[] toVisit = null;
+    int toVisitSize = 0;
     
     public Trie(Hierarchy h){
         this.h = h;
-        root = new TrieNode(-1);
+        items = new int[1024];
+        parents = new int[1024];
+        supports = new int[1024];
+        items[root] = -1;
+        parents[root] = -1;
+        table = new int[2048];
+        threshold = (int)(table.length * loadFactor);
     }
     
+    /**
+     * Adds one to the support of a word, inserting the nodes of its path
+     * @param word the items of the word
+     */
     public void insert(double[] word) {
-        Map<Double, TrieNode> children = root.children;
-        TrieNode curNode = root;
-        
+        insert(word, 1);
+    }
+    
+    /**
+     * Adds to the support of a word, inserting the nodes of its path
+     * @param word the items of the word
+     * @param count the number of times the word occurs
+     */
+    public void insert(double[] word, int count) {
+        int curNode = root;
         for(int i=0; i<word.length; i++){
-            double c = word[i];
-            TrieNode t;
-            
-            if(children.containsKey(c)){
-                t = children.get(c);
-            }
-            else{
-                t = new TrieNode(c);
-                curNode.addChild(c, t);
-                t.setParent(curNode);
+            curNode = getOrAddChild(curNode, (int)word[i]);
+        }
+        supports[curNode] += count;
+    }
+    
+    /**
+     * Finds a child of a node
+     * @param node the node
+     * @param item the item of the child
+     * @return the child, -1 if there is none
+     */
+    public int getChild(int node, int item){
+        int mask = table.length - 1;
+        int slot = hash(node, item) & mask;
+        while(table[slot] != 0){
+            int child = table[slot];
+            if(parents[child] == node && items[child] == item){
+                return child;
             }
-            
-            children = t.children;
-            curNode = t;
-            
-            //set leaf node
-            if(i==word.length-1){
-                t.support++;
-                if(t.getChildren().isEmpty()){
-                    t.setLeaf(true);
-                }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+    
+    private int getOrAddChild(int node, int item){
+        int child = getChild(node, item);
+        if(child != -1){
+            return child;
+        }
+        
+        if(size >= threshold){
+            rehash();
+        }
+        size++;
+        if(size == items.length){
+            int capacity = items.length + (items.length >> 1);
+            items = Arrays.copyOf(items, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            supports = Arrays.copyOf(supports, capacity);
+        }
+        child = size;
+        items[child] = item;
+        parents[child] = node;
+        
+        int mask = table.length - 1;
+        int slot = hash(node, item) & mask;
+        while(table[slot] != 0){
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = child;
+        ranges = false;
+        return child;
+    }
+    
+    private static int hash(int node, int item){
+        long h = ((long)node << 32) | (item & 0xffffffffL);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int)h;
+    }
+    
+    private void rehash(){
+        table = new int[table.length << 1];
+        threshold = (int)(table.length * loadFactor);
+        int mask = table.length - 1;
+        for(int node=1; node<=size; node++){
+            int slot = hash(parents[node], items[node]) & mask;
+            while(table[slot] != 0){
+                slot = (slot + 1) & mask;
             }
-            
+            table[slot] = node;
+        }
+    }
+    
+    /**
+     * Adds the supports of another tree, inserting the nodes it does not have
+     * @param other the other tree
+     */
+    public void merge(Trie other){
+        //nodes of this tree for the nodes of the other, parents come before their children
+        int[] nodes = new int[other.size + 1];
+        nodes[root] = root;
+        for(int node=1; node<=other.size; node++){
+            nodes[node] = getOrAddChild(nodes[other.parents[node]], other.items[node]);
+            supports[nodes[node]] += other.supports[node];
         }
     }
     
-    public TrieNode searchNode(Set<Double> path){
-        Map<Double, TrieNode> children = root.children;
-        TrieNode t = null;
+    public int searchNode(Set<Double> path){
+        int t = -1;
+        int curNode = root;
         
         for(Double c : path){
-            if(children.containsKey(c)){
-                t = children.get(c);
-                children = t.children;
-            }else{
-                return null;
+            t = getChild(curNode, c.intValue());
+            if(t == -1){
+                return -1;
             }
+            curNode = t;
         }
         
         return t;
     }
     
-    public TrieNode searchNode(double[] path){
-        Map<Double, TrieNode> children = root.children;
-        TrieNode t = null;
+    /**
+     * Finds the node of a path, read from its end up to the first -1
+     * @param path the items of the path
+     * @return the node, -1 if the path is not in the tree or is empty
+     */
+    public int searchNode(double[] path){
+        int t = -1;
+        int curNode = root;
         
         for(int i=path.length-1; i>=0; i--){
             if(path[i] == -1)
                 return t;
-            if(children.containsKey(path[i])){
-                t = children.get(path[i]);
-                children = t.children;
-            }
-            else{
-                return null;
+            t = getChild(curNode, (int)path[i]);
+            if(t == -1){
+                return -1;
             }
+            curNode = t;
         }
         
         return t;
@@ -114,77 +216,114 @@ public class Trie {
         this.maxLevel = maxLevel;
     }
     
-    public void printTree(TrieNode curNode){
-        //System.out.println("curNode = " + curNode);
-        Map<Double, TrieNode> children = curNode.getChildren();
-        for(Double ch : children.keySet()){
-            System.out.println(children.get(ch));
-            printTree(children.get(ch));
-        }
+    public int getRoot(){
+        return root;
     }
     
-    public TrieNode getRoot(){
-        return root;
+    public int getSize(){
+        return size;
+    }
+    
+    public double getValue(int node){
+        return items[node];
+    }
+    
+    public int getSupport(int node){
+        return supports[node];
+    }
+    
+    public int getParent(int node){
+        return parents[node];
     }
     
     /**
-     * returns nodes in pre order traversal
-     * @return next node in pre order traversal, null if all nodes are visited
+     * Checks if a node ends only words, with no longer word through it
+     * @param node the node
+     * @return true if the node has no children
      */
-    public TrieNode preorderNext(){
-        if(toVisit == null){
-            toVisit = new Stack<>();
-            return null;
+    public boolean isLeaf(int node){
+        buildRanges();
+        return childStart[node] == childStart[node + 1];
+    }
+    
+    /**
+     * Gets the items of the path of a node, from the node up to the root
+     * @param node the node
+     * @return the items of the path
+     */
+    public List<Double> getItemset(int node){
+        List<Double> path = new ArrayList<>();
+        while(node != root){
+            path.add((double)items[node]);
+            node = parents[node];
         }
-        
-        Map<Double, TrieNode> children;
-        if(toVisit.isEmpty()){
-            children = root.getChildren();
-            for(double d : children.keySet()){
-                toVisit.push(children.get(d));
-            }
+        return path;
+    }
+    
+    /**
+     * Sorts the children of every node by item into child ranges
+     */
+    private void buildRanges(){
+        if(ranges){
+            return;
         }
         
-        TrieNode curNode = (TrieNode)toVisit.pop();
-        children = curNode.getChildren();
-        
-        for(double d : children.keySet()){
-            toVisit.push(children.get(d));
+        childStart = new int[size + 2];
+        for(int node=1; node<=size; node++){
+            childStart[parents[node] + 1]++;
+        }
+        for(int node=0; node<=size; node++){
+            childStart[node + 1] += childStart[node];
         }
         
-        if(toVisit.isEmpty()) toVisit = null;
-        return curNode;
+        //children by item and node, so that a sort of a range orders it by item
+        long[] sorted = new long[size];
+        int[] next = Arrays.copyOf(childStart, size + 1);
+        for(int node=1; node<=size; node++){
+            sorted[next[parents[node]]++] = ((long)items[node] << 32) | node;
+        }
+        childNodes = new int[size];
+        for(int node=0; node<=size; node++){
+            Arrays.sort(sorted, childStart[node], childStart[node + 1]);
+            for(int i=childStart[node]; i<childStart[node + 1]; i++){
+                childNodes[i] = (int)sorted[i];
+            }
+        }
+        ranges = true;
     }
     
-    public Set<TrieNode> getSubTreeOf(TrieNode node){
-        
-        if(node.getChildren() == null || node.getChildren().isEmpty())
-            return null;
-        
-        Set<TrieNode> subtree = new HashSet<>();
-        
-        Stack<TrieNode> stack = new Stack<>();
-        
-        //add initial children to stack
-        Map<Double, TrieNode> ch = node.getChildren();
-        for(double d : ch.keySet()){
-            stack.push(ch.get(d));
+    private void pushChildren(int node){
+        //the largest item is pushed first, so that children are visited by ascending item
+        int from = childStart[node];
+        int to = childStart[node + 1];
+        if(toVisitSize + (to - from) > toVisit.length){
+            toVisit = Arrays.copyOf(toVisit, Math.max(toVisit.length << 1, toVisitSize + (to - from)));
+        }
+        for(int i=to-1; i>=from; i--){
+            toVisit[toVisitSize++] = childNodes[i];
+        }
+    }
+    
+    /**
+     * returns nodes in pre order traversal
+     * @return next node in pre order traversal, -1 if all nodes are visited
+     */
+    public int preorderNext(){
+        if(toVisit == null){
+            buildRanges();
+            toVisit = new int[64];
+            toVisitSize = 0;
+            pushChildren(root);
         }
         
-        while(!stack.isEmpty()){
-            
-            //add current node to results
-            TrieNode curNode = stack.pop();
-            subtree.add(curNode);
-            
-            //add children of current node to stack
-            Map<Double, TrieNode> chs = curNode.getChildren();
-            for(double d : chs.keySet()){
-                stack.push(chs.get(d));
-            }
+        if(toVisitSize == 0){
+            toVisit = null;
+            return -1;
         }
         
-        return subtree;
+        int curNode = toVisit[--toVisitSize];
+        pushChildren(curNode);
+        return curNode;
     }
     
     public void combineAndAdd(double[] arr, int r) {
@@ -0,0 +1,75 @@
+/* 
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena" 
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ */
+package algorithms.kmanonymity;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Counts the combinations of a range of distinct transactions, splitting the
+ * range in halves down to a slice. Every slice is counted in a count tree of
+ * its own, which is merged into the shared tree under its lock as soon as the
+ * slice is done, so that at most one slice tree per thread is alive besides
+ * the shared tree
+ */
+public class TriePopulator extends RecursiveAction{
+    private static final long serialVersionUID = 1L;
+    
+    Apriori alg = null;
+    Trie target = null;
+    int from = -1;
+    int to = -1;
+    int slice = -1;
+    int size = -1;
+
+    /**
+     * Creates the task of a range of transactions
+     * @param alg the algorithm that holds the transactions
+     * @param target the shared count tree
+     * @param from the first transaction
+     * @param to the position after the last transaction
+     * @param slice the most transactions counted without splitting
+     * @param size the number of items in a combination
+     */
+    public TriePopulator(Apriori alg, Trie target, int from, int to, int slice, int size){
+        this.alg = alg;
+        this.target = target;
+        this.from = from;
+        this.to = to;
+        this.slice = slice;
+        this.size = size;
+    }
+
+    @Override
+    protected void compute() {
+        if(to - from <= slice){
+            Trie trie = new Trie(alg.hierarchy);
+            for(int row=from; row<to; row++){
+                alg.insertCombinations(row, size, trie);
+            }
+            synchronized(target){
+                target.merge(trie);
+            }
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        invokeAll(new TriePopulator(alg, target, from, mid, slice, size),
+                new TriePopulator(alg, target, mid, to, slice, size));
+    }
+}
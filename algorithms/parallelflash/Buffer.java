@@ -18,27 +18,47 @@
  */
 package algorithms.parallelflash;
 
-import java.util.HashMap;
 import algorithms.flash.*;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 import data.Data;
 import hierarchy.Hierarchy;
 
 /**
- * A frequency set
+ * A frequency set, split into partitions of disjoint equivalence classes
+ * that are counted in parallel
  * @author serafeim
  */
-public class Buffer {
+public class Buffer implements FrequencyBuffer {
     Data data = null;
     Map<Integer, Hierarchy> hierarchies = null;
-    Map<GeneralizedRow, Integer> frequencies = new HashMap<>();
+    GeneralizationTable[] tables = null;
+    FrequencySet[] parts = null;
     int counterTimes = -1;
+    int k = 0;
+    int outliers = 0;
+    boolean complete = true;
     
-    public Buffer(Data _data,  Map<Integer, Hierarchy> _hierarchies){
+    public Buffer(Data _data,  Map<Integer, Hierarchy> _hierarchies, GeneralizationTable[] _tables){
+        this(_data, _hierarchies, _tables, 0, 0);
+    }
+    
+    /**
+     * Creates a buffer that keeps track of the classes under k while the
+     * partitions are counted and stops as soon as the node cannot be
+     * k-anonymous
+     * @param _data the dataset
+     * @param _hierarchies the hierarchies of the quasi-identifiers
+     * @param _tables the generalization tables of the quasi-identifiers
+     * @param _k the parameter k of k-Anonymity
+     * @param _outliers the number of rows allowed in classes under k
+     */
+    public Buffer(Data _data,  Map<Integer, Hierarchy> _hierarchies, GeneralizationTable[] _tables, int _k, int _outliers){
         hierarchies = _hierarchies;
         data = _data;
+        tables = _tables;
+        k = _k;
+        outliers = _outliers;
     }
     
     /**
@@ -52,20 +72,69 @@ public class Buffer {
         int datasetLength = data.getDataLenght();
         int numberOfThreads = (datasetLength < parallelism) ? datasetLength : parallelism;
         int splitSize = (datasetLength % numberOfThreads == 0) ? datasetLength / numberOfThreads : datasetLength / numberOfThreads + 1;
+        int[] levelSizes = getLevelSizes(node.getTransformation());
+        PackedRows rows = new PackedRows(new FrequencySet(levelSizes), datasetLength, parallelism, false);
                 
         Worker worker = null;
         for (int i = 0; i < datasetLength; i += splitSize){
             int start = i;
             int end = (splitSize < datasetLength - i) ? i + splitSize : datasetLength;
                         
-            worker = new Worker(data,hierarchies,node,null,null,null,qidColumns,start,end,worker);
+            worker = new Worker(node,null,null,tables,rows,start,end,start,worker);
             pool.execute(worker);
         }
         
         //wait all threads to finish
-        for (Worker w = worker; w != null; w = w.nextJoin){       
-            mergeMaps(this.frequencies, w.join());
+        join(worker);
+        count(rows, levelSizes, 16, pool);
+    }
+    
+    private void join(Worker worker){
+        for (Worker w = worker; w != null; w = w.nextJoin){
+            w.join();
+        }
+    }
+    
+    /**
+     * Counts every partition of the packed rows in its own frequency set, so
+     * that every counter reads only the rows of its partition. The classes of
+     * a counted partition are final, so the remaining counters are cancelled
+     * as soon as the rows under k exceed the outliers
+     * @param rows the packed rows
+     * @param levelSizes the number of distinct ids of every dimension
+     * @param expectedSize the expected number of equivalence classes
+     * @param pool
+     */
+    private void count(PackedRows rows, int[] levelSizes, int expectedSize, ForkJoinPool pool){
+        int partitions = rows.getPartitions();
+        rows.group();
+        Counter[] counters = new Counter[partitions];
+        for (int p = 0; p < partitions; p++){
+            counters[p] = new Counter(rows, p, levelSizes, expectedSize / partitions + 1, this.k);
+            pool.execute(counters[p]);
+        }
+        
+        parts = new FrequencySet[partitions];
+        int rowsUnderK = 0;
+        for (int p = 0; p < partitions; p++){
+            if(!complete){
+                counters[p].cancel(false);
+                continue;
+            }
+            parts[p] = counters[p].join();
+            rowsUnderK += parts[p].getRowsUnderK();
+            if(rowsUnderK > outliers){
+                complete = false;
+            }
+        }
+    }
+    
+    private int[] getLevelSizes(int[] transformation){
+        int[] levelSizes = new int[transformation.length];
+        for(int k=0; k<transformation.length; k++){
+            levelSizes[k] = tables[k].getLevelSize(transformation[k]);
         }
+        return levelSizes;
     }
     
     /**
@@ -74,24 +143,27 @@ public class Buffer {
      * @return true if the frequency set is k-Anonymous, false otherwise
      */
     public boolean isKAnonymous(int k){
-        boolean isAnonymous = true;
+        if(!complete){
+            return false;
+        }
+        if(k == this.k){
+            int rowsUnderK = 0;
+            for(FrequencySet frequencies : parts){
+                rowsUnderK += frequencies.getRowsUnderK();
+            }
+            return rowsUnderK <= outliers;
+        }
         
-        for(GeneralizedRow distinctRow : frequencies.keySet()){
-            Integer count = frequencies.get(distinctRow);
-            if(count < k){
-                isAnonymous = false;
-                break;
+        for(FrequencySet frequencies : parts){
+            for(int slot=0; slot<frequencies.getSlots(); slot++){
+                int count = frequencies.getCount(slot);
+                if(count != 0 && count < k){
+                    return false;
+                }
             }
         }
         
-        return isAnonymous;
-    }
-    
-    
-    GeneralizedRow[] convertKeyset(Buffer parentNodeBuffer){
-        //convert parentNodeBuffer's keyset to array for concurrent access
-        Set<GeneralizedRow> keyset = parentNodeBuffer.getFrequencies().keySet();
-        return keyset.toArray(new GeneralizedRow[keyset.size()]);
+        return true;
     }
     
     /**
@@ -104,55 +176,78 @@ public class Buffer {
      * @param parallelism
      */
     public void compute(LatticeNode node, LatticeNode parentNode, Buffer parentNodeBuffer, int[] qidColumns, ForkJoinPool pool, int parallelism) {
-        long computeStartTime = System.currentTimeMillis();
-        GeneralizedRow[] keysetArray = convertKeyset(parentNodeBuffer);
         
-        //compute parameters for splitting
-        int datasetLength = keysetArray.length;
+        //split the slots of the parent's frequency sets
+        int datasetLength = 0;
+        for(FrequencySet parentFrequencies : parentNodeBuffer.getParts()){
+            datasetLength += parentFrequencies.getSlots();
+        }
         int numberOfThreads = (datasetLength < parallelism) ? datasetLength : parallelism;
         int splitSize = (datasetLength % numberOfThreads == 0) ? datasetLength / numberOfThreads : datasetLength / numberOfThreads + 1;
+        int[] levelSizes = getLevelSizes(node.getTransformation());
+        PackedRows rows = new PackedRows(new FrequencySet(levelSizes), datasetLength, parallelism, true);
         
         Worker worker = null;
-        for (int i = 0; i < datasetLength; i += splitSize){
-            int start = i;
-            int end = (splitSize < datasetLength - i) ? i + splitSize : datasetLength;
-            worker = new Worker(data,hierarchies,node,parentNode,parentNodeBuffer,keysetArray,qidColumns,start,end,worker);
-            pool.execute(worker);
+        int offset = 0;
+        for(FrequencySet parentFrequencies : parentNodeBuffer.getParts()){
+            int slots = parentFrequencies.getSlots();
+            for (int i = 0; i < slots; i += splitSize){
+                int start = i;
+                int end = (splitSize < slots - i) ? i + splitSize : slots;
+                worker = new Worker(node,parentNode,parentFrequencies,tables,rows,start,end,offset + start,worker);
+                pool.execute(worker);
+            }
+            offset += slots;
         }
         
-        long waitTime = System.currentTimeMillis();
-         counterTimes ++;
+        counterTimes ++;
         //wait all threads to finish
-        for (Worker w = worker; w != null; w = w.nextJoin){
-            mergeMaps(this.frequencies, w.join());
-        }
-    }
-    
-    public int getSize(){
-        return this.frequencies.size();
+        join(worker);
+        count(rows, levelSizes, parentNodeBuffer.getSize(), pool);
     }
     
     /**
-     * Getter of frequencies map
-     * @return frequencies map
+     * Determines if the frequency set was fully computed, or the merging
+     * stopped early because the node cannot be k-anonymous
+     * @return true if the frequency set is complete
      */
-    public Map<GeneralizedRow, Integer> getFrequencies() {
-        return frequencies;
+    public boolean isComplete(){
+        return complete;
     }
     
-    private void mergeMaps(Map<GeneralizedRow, Integer> mainMap,
-        Map<GeneralizedRow, Integer> secondaryMap){
-
-        for(GeneralizedRow gRow : secondaryMap.keySet()){
-            Integer mainMapValue = mainMap.get(gRow);
-            
-            if(mainMapValue == null){
-                mainMap.put(gRow, secondaryMap.get(gRow));
+    @Override
+    public int getSize(){
+        int size = 0;
+        for(FrequencySet frequencies : parts){
+            if(frequencies != null){
+                size += frequencies.size();
             }
-            else{
-                mainMap.put(gRow, secondaryMap.get(gRow) + mainMapValue);
+        }
+        return size;
+    }
+    
+    /**
+     * Gets the memory held by the partitions
+     * @return the size in bytes
+     */
+    @Override
+    public long getMemorySize(){
+        long memorySize = 0;
+        for(FrequencySet frequencies : parts){
+            if(frequencies != null){
+                memorySize += frequencies.getMemorySize();
             }
         }
+        return memorySize;
+    }
+    
+    /**
+     * Getter of the partitions of the frequency set
+     * @return the frequency sets of the partitions, null for partitions that
+     * were not counted
+     */
+    public FrequencySet[] getParts() {
+        return parts;
     }
     
 }
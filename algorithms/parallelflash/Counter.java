@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena"
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ */
+package algorithms.parallelflash;
+
+import algorithms.flash.FrequencySet;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the equivalence classes of one partition of the generalized rows of
+ * a lattice node
+ */
+public class Counter extends RecursiveTask<FrequencySet>{
+    private static final long serialVersionUID = 1L;
+    
+    PackedRows rows = null;
+    int partition = -1;
+    int[] levelSizes = null;
+    int expectedSize = 16;
+    int k = 0;
+
+    /**
+     * Creates the counter of a partition
+     * @param rows the generalized rows
+     * @param partition the partition
+     * @param levelSizes the number of distinct ids of every dimension
+     * @param expectedSize the expected number of equivalence classes of the partition
+     * @param k the parameter k of k-Anonymity, 0 to not track the classes under k
+     */
+    public Counter(PackedRows rows, int partition, int[] levelSizes, int expectedSize, int k){
+        this.rows = rows;
+        this.partition = partition;
+        this.levelSizes = levelSizes;
+        this.expectedSize = expectedSize;
+        this.k = k;
+    }
+
+    @Override
+    protected FrequencySet compute() {
+        FrequencySet frequencies = new FrequencySet(levelSizes, expectedSize, k);
+        rows.count(partition, frequencies);
+        return frequencies;
+    }
+}
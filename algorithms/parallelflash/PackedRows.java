@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena"
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ */
+package algorithms.parallelflash;
+
+import algorithms.flash.FrequencySet;
+
+/**
+ * The generalized rows of a lattice node as packed keys, with the partition
+ * of every key. The workers fill disjoint parts of the arrays, the rows are
+ * then grouped by partition, and every counter counts the rows of one
+ * partition, so that no two counters share an equivalence class.
+ */
+public class PackedRows {
+    private final FrequencySet layout;
+    private final int stride;
+    private final int partitions;
+    private final long[] keys;
+    //rows of every key, null if every key is a single row
+    private final int[] counts;
+    //partition of every key, -1 for keys that are not used
+    private final int[] partitionOf;
+    //rows grouped by partition, the rows of partition p are in
+    //order[partitionStart[p]] to order[partitionStart[p + 1] - 1]
+    private int[] order = null;
+    private int[] partitionStart = null;
+
+    /**
+     * Creates the arrays of the rows
+     * @param layout a frequency set with the level sizes of the node
+     * @param rows the number of rows, or slots of the parent's frequency sets
+     * @param partitions the number of partitions
+     * @param weighted true if the rows carry counts
+     */
+    public PackedRows(FrequencySet layout, int rows, int partitions, boolean weighted){
+        this.layout = layout;
+        this.stride = layout.getStride();
+        this.partitions = partitions;
+        long length = (long)rows * stride;
+        if(length > Integer.MAX_VALUE - 8){
+            throw new IllegalArgumentException("Too many rows to pack: " + rows + " rows of " + stride + " longs");
+        }
+        this.keys = new long[(int)length];
+        this.counts = weighted ? new int[rows] : null;
+        this.partitionOf = new int[rows];
+    }
+
+    /**
+     * Stores a generalized row
+     * @param row the position of the row
+     * @param ids the generalized id of every dimension
+     * @param count the number of rows it stands for
+     */
+    public void set(int row, int[] ids, int count){
+        int offset = row * stride;
+        layout.pack(ids, keys, offset);
+        partitionOf[row] = layout.getPartition(keys, offset, partitions);
+        if(counts != null){
+            counts[row] = count;
+        }
+    }
+
+    /**
+     * Marks a row as not used, for the empty slots of the parent's frequency sets
+     * @param row the position of the row
+     */
+    public void skip(int row){
+        partitionOf[row] = -1;
+    }
+
+    /**
+     * Groups the rows by partition with a counting sort, once all the rows
+     * are set and before they are counted
+     */
+    public void group(){
+        partitionStart = new int[partitions + 1];
+        for(int partition : partitionOf){
+            if(partition >= 0){
+                partitionStart[partition + 1]++;
+            }
+        }
+        for(int p=0; p<partitions; p++){
+            partitionStart[p + 1] += partitionStart[p];
+        }
+        
+        order = new int[partitionStart[partitions]];
+        int[] next = new int[partitions];
+        System.arraycopy(partitionStart, 0, next, 0, partitions);
+        for(int row=0; row<partitionOf.length; row++){
+            int partition = partitionOf[row];
+            if(partition >= 0){
+                order[next[partition]++] = row;
+            }
+        }
+    }
+
+    /**
+     * Counts the rows of a partition, after the rows are grouped
+     * @param partition the partition
+     * @param frequencies the frequency set of the partition
+     */
+    public void count(int partition, FrequencySet frequencies){
+        for(int i=partitionStart[partition]; i<partitionStart[partition + 1]; i++){
+            int row = order[i];
+            frequencies.add(keys, row * stride, (counts != null) ? counts[row] : 1);
+        }
+    }
+
+    public int getPartitions(){
+        return partitions;
+    }
+}
@@ -27,15 +27,25 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import algorithms.Algorithm;
+import algorithms.RunMetrics;
+import algorithms.flash.GeneralizationTable;
+import algorithms.flash.Heap;
+import algorithms.flash.HistoryBuffers;
 import algorithms.flash.Lattice;
 import algorithms.flash.LatticeBuilder;
 import algorithms.flash.LatticeNode;
+import algorithms.flash.Sorting;
 import data.Data;
 import graph.Edge;
 import graph.Graph;
 import graph.Node;
 import hierarchy.Hierarchy;
+import java.text.ParseException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  *
@@ -45,13 +55,18 @@ public class ParallelFlash implements Algorithm{
     Data dataset = null;
     Map<Integer, Hierarchy> hierarchies = null;
     Integer k = null;
+    int outliers = 0;
     LatticeBuilder builder = null;
     Lattice lattice = null;
     int hierarchiesNum = -1;
-    HistoryBuffers buffers = new HistoryBuffers(10);   
-    Set<LatticeNode> resultset = new HashSet<>();
+    //frequency sets kept for deriving others, in a quarter of the heap
+    HistoryBuffers<Buffer> buffers = new HistoryBuffers<>(Runtime.getRuntime().maxMemory() / 4);
+    GeneralizationTable[] tables = null;
     ForkJoinPool pool = null;
     int parallelism = -1;
+    //lattice nodes checked at the same time, 1 for the sequential traversal
+    int parallelNodes = 1;
+    RunMetrics metrics = new RunMetrics();
     
     public ParallelFlash(int parallelismNum){
         pool = new ForkJoinPool(parallelismNum);
@@ -76,6 +91,12 @@ public class ParallelFlash implements Algorithm{
     @Override
     public void setArguments(Map<String, Integer> arguments) {
         this.k = arguments.get("k");
+        if(arguments.get("outliers") != null){
+            this.outliers = arguments.get("outliers");
+        }
+        if(arguments.get("parallelNodes") != null){
+            this.parallelNodes = arguments.get("parallelNodes");
+        }
     }
     
     @Override
@@ -86,7 +107,9 @@ public class ParallelFlash implements Algorithm{
         int minLevels[] = new int[hierarchiesNum];
         int maxLevels[] = new int[hierarchiesNum];
         int distinctValues[][] = new int[hierarchiesNum][];
+        tables = new GeneralizationTable[hierarchiesNum];
         int count = 0;
+        long start = System.nanoTime();
         
         for(Integer column : this.hierarchies.keySet()){
             Hierarchy h = this.hierarchies.get(column);
@@ -99,34 +122,96 @@ public class ParallelFlash implements Algorithm{
             //compute distinct values in hierarchy
             distinctValues[count] = new int[getHierarchyHeight(h)];
             findHierarchyDistinctValues(h, distinctValues[count]);
+            
+            //generalize the distinct values of the column once for all levels
+            try {
+                tables[count] = new GeneralizationTable(this.dataset, column, h, getHierarchyHeight(h));
+            } catch (ParseException ex) {
+                Logger.getLogger(ParallelFlash.class.getName()).log(Level.SEVERE, null, ex);
+                return;
+            }
             count++;
         }
+        metrics.addTime("tables", start);
                 
         //build lattice
+        start = System.nanoTime();
         builder = new LatticeBuilder(qidColumns, minLevels, maxLevels);
         lattice = builder.build();
-        Heap heap = new Heap(maxLevels, distinctValues);
+        metrics.set("lattice.size", lattice.getSize());
+        metrics.addTime("lattice", start);
+        Heap heap = new Heap(lattice, maxLevels, distinctValues);
         Sorting sorter = new Sorting(maxLevels, distinctValues);
         
         //outer loop of Flash algorithm
+        start = System.nanoTime();
         for(int level = 0; level <= lattice.getHeight()-1; level++){
-            for(LatticeNode node : sorter.sort(lattice.getLevels()[level])){
-                if(!node.isTagged()){
-                    LatticeNode[] path = findPath(node, maxLevels, distinctValues);
-                    checkPath(path, heap);
-                    while(!heap.isEmpty()){
-                        node = heap.extractMin();
-                        for(LatticeNode successor : sorter.sort(node.getSuccessors())){
-                            if(!successor.isTagged()){
-                                path = findPath(successor, maxLevels,distinctValues);
-                                checkPath(path, heap);
-                            }
-                        }
+            LatticeNode[] nodes = sorter.sort(lattice.getUntaggedLevel(level));
+            if(parallelNodes > 1){
+                checkLevel(nodes, maxLevels, distinctValues);
+            }
+            else{
+                for(LatticeNode node : nodes){
+                    if(!lattice.isTagged(node)){
+                        checkNode(node, heap, sorter);
                     }
-               }
+                }
+            }
+        }
+        metrics.addTime("search", start);
+        metrics.set("history.peakMemoryBytes", buffers.peakMemory());
+        metrics.setRatio("history.hitRate", "history.hits", "history.lookups");
+        System.out.println("Results : " + getResultSet());
+    }
+    
+    /**
+     * Checks the untagged nodes of a lattice level, starting from several
+     * nodes at the same time. Every task takes the next untagged node in sorted
+     * order and walks the lattice from it with its own heap; tasks may check
+     * the same node, which gives the same answer as k-anonymity is monotone
+     * @param nodes the sorted nodes of the level
+     * @param maxLevels
+     * @param distinctValues
+     */
+    private void checkLevel(LatticeNode[] nodes, int[] maxLevels, int[][] distinctValues){
+        AtomicInteger next = new AtomicInteger();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for(int i=0; i<parallelNodes; i++){
+            tasks.add(pool.submit(() -> {
+                Heap heap = new Heap(lattice, maxLevels, distinctValues);
+                Sorting sorter = new Sorting(maxLevels, distinctValues);
+                for(int pos = next.getAndIncrement(); pos < nodes.length; pos = next.getAndIncrement()){
+                    if(!lattice.isTagged(nodes[pos])){
+                        checkNode(nodes[pos], heap, sorter);
+                    }
+                }
+            }));
+        }
+        
+        for(ForkJoinTask<?> task : tasks){
+            task.join();
+        }
+    }
+    
+    /**
+     * Checks the path from a node to the top of the lattice, and then the
+     * paths from the successors of the non anonymous nodes
+     * @param node an untagged node
+     * @param heap the heap of the non anonymous nodes
+     * @param sorter
+     */
+    private void checkNode(LatticeNode node, Heap heap, Sorting sorter){
+        LatticeNode[] path = findPath(node, sorter);
+        checkPath(path, heap);
+        while(!heap.isEmpty()){
+            node = heap.extractMin();
+            for(LatticeNode successor : sorter.sort(node.getSuccessors())){
+                if(!lattice.isTagged(successor)){
+                    path = findPath(successor, sorter);
+                    checkPath(path, heap);
+                }
             }
         }
-        System.out.println("Results : " + this.resultset);
     }
     
     public void checkPath(LatticeNode[] path, Heap heap){
@@ -149,9 +234,8 @@ public class ParallelFlash implements Algorithm{
         }
     }
     
-    public LatticeNode[] findPath(LatticeNode node, int[] maxLevels, int[][] distinctValues){
+    public LatticeNode[] findPath(LatticeNode node, Sorting sorter){
         List<LatticeNode> path = new ArrayList<>();
-        Sorting sorter = new Sorting(maxLevels, distinctValues);
         
         while(true){
              LatticeNode headNode = head(path);
@@ -160,11 +244,9 @@ public class ParallelFlash implements Algorithm{
 
             path.add(node);
 
-            for(LatticeNode upNode : sorter.sort(node.getSuccessors())){
-                if(!upNode.isTagged()){
-                    node = upNode;
-                    break;
-                }
+            LatticeNode upNode = sorter.findFirstUntagged(node.getSuccessors(), lattice);
+            if(upNode != null){
+                node = upNode;
             }
         }
         
@@ -179,30 +261,42 @@ public class ParallelFlash implements Algorithm{
     
     public boolean checkAndTag(LatticeNode node){
         Buffer curBuffer = null;
+        long start = System.nanoTime();
+        metrics.increment("nodes.checked");
+        metrics.increment("history.lookups");
 
+        //the closest node may be evicted by another task before its buffer is taken
         LatticeNode bestNode = this.buffers.findClosestNode(node);
+        Buffer bestNodeBuffer = (bestNode != null) ? this.buffers.get(bestNode) : null;
         
-        if (bestNode != null){
-            Buffer bestNodeBuffer = this.buffers.get(bestNode);
-            curBuffer = new Buffer(this.dataset, this.hierarchies);
+        if (bestNodeBuffer != null){
+            curBuffer = new Buffer(this.dataset, this.hierarchies, this.tables, this.k, this.outliers);
             curBuffer.compute(node, bestNode, bestNodeBuffer, this.lattice.getQidColumns(), this.pool, parallelism);
+            metrics.increment("history.hits");
+            metrics.increment("frequencySets.fromHistory");
         }
         else{
             //compute frequency set from dataset
-            curBuffer = new Buffer(this.dataset, this.hierarchies);
+            curBuffer = new Buffer(this.dataset, this.hierarchies, this.tables, this.k, this.outliers);
             curBuffer.compute(node, this.lattice.getQidColumns(), this.pool, parallelism);
-            
+            metrics.increment("frequencySets.fromDataset");
         }
+        metrics.addTime("frequencySets", start);
         
-        //check if node is k-anonymous
+        //check if node is k-anonymous, the other nodes tagged with it are tagged predictively
         if(curBuffer.isKAnonymous(this.k)){
-            lattice.setTagUpwards(node, this.resultset);
+            metrics.add("nodes.taggedPredictively", Math.max(lattice.setTagUpwards(node) - 1, 0));
             return true;
         }
         else{
-            //put current buffer node to history
-            this.buffers.put(node, curBuffer);
-            lattice.setTagDownwards(node);
+            //put current buffer node to history, only complete frequency sets can be used to derive others
+            if(curBuffer.isComplete()){
+                this.buffers.put(node, curBuffer);
+            }
+            else{
+                metrics.increment("frequencySets.stoppedEarly");
+            }
+            metrics.add("nodes.taggedPredictively", Math.max(lattice.setTagDownwards(node) - 1, 0));
             return false;
         }
     }
@@ -233,12 +327,20 @@ public class ParallelFlash implements Algorithm{
     
     @Override
     public Set<LatticeNode> getResultSet() {
-        return this.resultset;
+        if(lattice == null){
+            return new HashSet<>();
+        }
+        return lattice.getAnonymousNodes();
     }
 
     @Override
     public boolean isAnonymousResult(LatticeNode node) {
-        return this.resultset.contains(node);
+        return lattice.isAnonymous(node);
+    }
+
+    @Override
+    public RunMetrics getMetrics() {
+        return metrics;
     }
 
     @Override
@@ -1,78 +0,0 @@
-/* 
- * Copyright (C) 2015 "IMIS-Athena R.C.",
- * Institute for the Management of Information Systems, part of the "Athena" 
- * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
- * [http://www.imis.athena-innovation.gr/]
- * 
- * This program is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as published by
- * the Free Software Foundation, either version 3 of the License, or
- * (at your option) any later version.
- * 
- * This program is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
- * 
- * You should have received a copy of the GNU General Public License
- */
-package algorithms.parallelflash;
-
-import algorithms.flash.*;
-import java.util.Arrays;
-import java.util.Comparator;
-
-/**
- *
- * @author jimakos
- */
-public class Sorting {
-    private final int[] maxLevels;
-    private final int[][] distinctValues;
-
-    public Sorting (int[] maxLevels, int[][] distinctValues ){
-        this.maxLevels = maxLevels;
-        this.distinctValues = distinctValues;
-    }
-    
-    public LatticeNode[] sort(LatticeNode[] nodes){
-        if ( nodes.length > 1){
-            Arrays.sort(nodes, new LatticeNodeComparator());
-        }
-        
-        return nodes;
-    }
-    
-    class LatticeNodeComparator implements Comparator<LatticeNode>{
-
-        @Override
-        public int compare(LatticeNode n1, LatticeNode n2) {
-            
-            if(n1.getLevel() < n2.getLevel()){
-                return -1;
-            }
-            else if(n1.getLevel() > n2.getLevel()){
-                return 1;
-            }
-            else{
-                if(n1.getAvgGeneralization(maxLevels) < n2.getAvgGeneralization(maxLevels)){
-                    return -1;
-                }
-                else if(n1.getAvgGeneralization(maxLevels) > n2.getAvgGeneralization(maxLevels)){
-                    return 1;
-                }
-                else{
-                    if(n1.getDistinctValuesAvgGen(distinctValues) < n2.getDistinctValuesAvgGen(distinctValues)){
-                        return -1;
-                    }
-                    else if(n1.getDistinctValuesAvgGen(distinctValues) > n2.getDistinctValuesAvgGen(distinctValues)){
-                        return 1;
-                    }
-                }
-            }
-            return 0;
-        }
-        
-    }
-    
-}
@@ -115,7 +115,6 @@ public class AnonymizationRules {
         Map <Integer,String> colNamesPosition = null;
         Map <Integer,DictionaryString> dictionaries = null;
         int []hierarchyLevel = null;
-        double [][]dataset = data.getDataSet();
         Object columnName = null;
         int [] transformation = null; 
         Object nonAnonymizedData = null;
@@ -125,7 +124,7 @@ public class AnonymizationRules {
         colNamesPosition = data.getColNamesPosition();
         dictionaries = data.getDictionary();
 
-        hierarchyLevel = new int[dataset[0].length];
+        hierarchyLevel = new int[colNamesType.size()];
         for (int i = 0 ; i < hierarchyLevel.length ; i++){
             hierarchyLevel[i] = 0;
         }
@@ -134,11 +133,11 @@ public class AnonymizationRules {
         Hierarchy hierarchy = quasiIdentifiers.get(column);
 
         if(colNamesType.get(column).contains("int")){   
-            for(int line=0; line<dataset.length; line++){
+            for(int line=0; line<data.getDataLenght(); line++){
                 nonAnonymizedData = new Object(); 
                 anonymizedData = new Object();
                 tempData = new Object();
-                tempData = dataset[line][column];
+                tempData = data.getValue(line, column);
 
                 if ((double) tempData == 2147483646.0) {
                     nonAnonymizedData = "";
@@ -161,12 +160,12 @@ public class AnonymizationRules {
             }
         }
         else if(colNamesType.get(column).contains("double")){
-            for(int line=0; line<dataset.length; line++){
+            for(int line=0; line<data.getDataLenght(); line++){
                 nonAnonymizedData = new Object(); 
                 anonymizedData = new Object();
                 tempData = new Object();
-                tempData = dataset[line][column];
-                nonAnonymizedData = dataset[line][column];
+                tempData = data.getValue(line, column);
+                nonAnonymizedData = data.getValue(line, column);
                 
                 if ( tempData.equals(Double.NaN)){
                     nonAnonymizedData = "";
@@ -182,12 +181,12 @@ public class AnonymizationRules {
         }
         else{
             DictionaryString dictionary = dictionaries.get(column);
-            for(int line=0; line<dataset.length; line++){
+            for(int line=0; line<data.getDataLenght(); line++){
                 nonAnonymizedData = new Object(); 
                 anonymizedData = new Object();
                 tempData = new Object();
-                tempData = dataset[line][column];
-                Double d = (Double)dataset[line][column];
+                tempData = data.getValue(line, column);
+                Double d = (Double)data.getValue(line, column);
                 nonAnonymizedData = dictionary.getIdToString(d.intValue());
                 
                 
@@ -95,7 +95,7 @@ public class AnonymizedDataset {
      * renders anonymized dataset
      */
     public void renderAnonymizedTable() throws ParseException{
-        double [][]dataSet = this.dataset.getDataSet();
+        int columnsNum = this.dataset.getColNamesType().size();
         Map <Integer,String> colNamesType = null;
         Map <Integer,String> colNamesPosition = null;
         Map <Integer,DictionaryString> dictionaries = null;
@@ -122,17 +122,17 @@ public class AnonymizedDataset {
         
         for(int i=0; i< length; i++){
             for( int j = 0 ; j < colNamesType.size() ; j ++ ){
-                columnData[i][j] = dataSet[start+i][j];
+                columnData[i][j] = dataset.getValue(start+i, j);
             }
         }
 
         int count = 0;
-        hierarchyLevel = new int[dataSet[0].length];
+        hierarchyLevel = new int[columnsNum];
         for (int i = 0 ; i < hierarchyLevel.length ; i++){
             hierarchyLevel[i] = 0;
         }
 
-        for(int column=0; column<dataSet[0].length; column++){
+        for(int column=0; column<columnsNum; column++){
             
             columnName = colNamesPosition.get(column);
             boolean anonymizeColumn = false;
@@ -408,25 +408,25 @@ public class AnonymizedDataset {
      * @param file the filename
      */
     public Object[][] exportDataset(String file, boolean anonymized) throws ParseException{
-        double [][]dataSet = this.dataset.getDataSet();
+        int columnsNum = this.dataset.getColNamesType().size();
         Object[][]columnData = null;
         Map <Integer,String> colNamesType = dataset.getColNamesType();
         Map <Integer,DictionaryString> dictionary = dataset.getDictionary();
         
-        columnData = new Object[dataSet.length][dataSet[0].length];
+        columnData = new Object[dataset.getDataLenght()][columnsNum];
         if (anonymized == false ){
             //write data
-            for ( int i = 0 ; i < dataSet.length ; i ++){
-                for (int j = 0 ; j <dataSet[i].length  ; j ++){
+            for ( int i = 0 ; i < dataset.getDataLenght() ; i ++){
+                for (int j = 0 ; j <columnsNum  ; j ++){
                     if (colNamesType.get(j).equals("double")){
-                        columnData[i][j] =  Double.toString(dataSet[i][j]);
+                        columnData[i][j] =  Double.toString(dataset.getValue(i, j));
                     }
                     else if (colNamesType.get(j).equals("int")){
-                        columnData[i][j] = Integer.toString((int)dataSet[i][j]);
+                        columnData[i][j] = Integer.toString((int)dataset.getValue(i, j));
                     }
                     else{
                         DictionaryString dict = dictionary.get(j);
-                        columnData[i][j] = dict.getIdToString((int)dataSet[i][j]);
+                        columnData[i][j] = dict.getIdToString((int)dataset.getValue(i, j));
                     }
                 }
             }
@@ -442,21 +442,21 @@ public class AnonymizedDataset {
             dictionaries = dataset.getDictionary();
 
             //compute data of first column with line numbers
-            for(int i=0; i< dataSet.length; i++){
+            for(int i=0; i< dataset.getDataLenght(); i++){
                 for( int j = 0 ; j < colNamesType.size() ; j ++ ){
-                    columnData[i][j] = dataSet[start+i][j];
+                    columnData[i][j] = dataset.getValue(start+i, j);
                 }
             }
 
             int count = 0;
 
             //compute data of columns
-            hierarchyLevel = new int[dataSet[0].length];
+            hierarchyLevel = new int[columnsNum];
             for (int i = 0 ; i < hierarchyLevel.length ; i++){
                 hierarchyLevel[i] = 0;
             }
 
-            for(int column=0; column<dataSet[0].length; column++){
+            for(int column=0; column<columnsNum; column++){
                 columnName = colNamesPosition.get(column);
                 boolean anonymizeColumn = false;
                 Hierarchy hierarchy = null;
@@ -727,7 +727,7 @@ public class AnonymizedDataset {
      */
     public void anonymizeWithImportedRules(Map<String, Map<String, String>> rules) {
         
-        double [][]dataSet = this.dataset.getDataSet();
+        int columnsNum = this.dataset.getColNamesType().size();
         Map <Integer,String> colNamesType = null;
         Map <Integer,String> colNamesPosition = null;
         Map <Integer,DictionaryString> dictionaries = null;
@@ -754,7 +754,7 @@ public class AnonymizedDataset {
 
         for(int i=0; i< length; i++){
             for( int j = 0 ; j < colNamesType.size() ; j ++ ){
-                columnData[i][j] = dataSet[start+i][j];
+                columnData[i][j] = dataset.getValue(start+i, j);
             }
         }
         
@@ -763,7 +763,7 @@ public class AnonymizedDataset {
         
         
         //compute data of columns
-        for(int column=0; column<dataSet[0].length; column++){ 
+        for(int column=0; column<columnsNum; column++){ 
             columnName = colNamesPosition.get(column);
             if(rules.containsKey(columnName)){
                 Map<String,String> columnRules = rules.get(columnName);
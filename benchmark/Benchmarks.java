@@ -0,0 +1,296 @@
+/* 
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena" 
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ */
+package benchmark;
+
+import algorithms.Algorithm;
+import algorithms.flash.Buffer;
+import algorithms.flash.Flash;
+import algorithms.flash.GeneralizationTable;
+import algorithms.flash.Lattice;
+import algorithms.flash.LatticeBuilder;
+import algorithms.flash.LatticeNode;
+import algorithms.kmanonymity.Apriori;
+import algorithms.parallelflash.ParallelFlash;
+import data.Data;
+import data.DelimitedFileReader;
+import data.SETData;
+import data.TXTData;
+import hierarchy.Hierarchy;
+import hierarchy.distinct.HierarchyImplString;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import solutions.FindSolutions;
+
+/**
+ * Benchmarks of the anonymization engines on synthetic data. Every case runs
+ * a number of warm-up iterations and then reports the mean, minimum and
+ * maximum time of the measured ones. Arguments are given as key=value:
+ * rows, qis, height, fanout, skew, items, seed, k (comma separated), m (comma
+ * separated), threads, warmup, iterations, dir and cases (comma separated,
+ * out of parse, load, snapshot, root, rollup, flash, pflash, apriori,
+ * solutions). The parse case also checks every number read by the fast path
+ * of the reader against Double.parseDouble, and fails on the first mismatch.
+ * The load case parses the file without reading or writing its snapshot,
+ * which the snapshot case writes once and then measures reading. Inputs are
+ * loaded outside the measured calls.
+ */
+public class Benchmarks {
+    private final Map<String, String> options = new HashMap<>();
+    private final SyntheticDataset generator = new SyntheticDataset();
+    private File dir = null;
+    private File datasetFile = null;
+    private File setFile = null;
+    private File[] hierarchyFiles = null;
+    private int warmup = 1;
+    private int iterations = 5;
+
+    public static void main(String[] args) throws Exception{
+        Benchmarks benchmarks = new Benchmarks();
+        for(String arg : args){
+            int pos = arg.indexOf('=');
+            if(pos > 0){
+                benchmarks.options.put(arg.substring(0, pos), arg.substring(pos + 1));
+            }
+        }
+        benchmarks.run();
+    }
+
+    private String get(String key, String defaultValue){
+        String value = options.get(key);
+        return (value != null) ? value : defaultValue;
+    }
+
+    private int[] getInts(String key, String defaultValue){
+        return Arrays.stream(get(key, defaultValue).split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private void run() throws Exception{
+        generator.setRows(Integer.parseInt(get("rows", "100000")))
+                .setQis(Integer.parseInt(get("qis", "4")))
+                .setHeight(Integer.parseInt(get("height", "4")))
+                .setFanout(Integer.parseInt(get("fanout", "4")))
+                .setSkew(Double.parseDouble(get("skew", "0")))
+                .setMaxItems(Integer.parseInt(get("items", "5")))
+                .setSeed(Long.parseLong(get("seed", "1")));
+        warmup = Integer.parseInt(get("warmup", "1"));
+        iterations = Integer.parseInt(get("iterations", "5"));
+        int threads = Integer.parseInt(get("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int[] ks = getInts("k", "2,5,10,50");
+        int[] ms = getInts("m", "1,2,3");
+        Set<String> cases = new HashSet<>(Arrays.asList(get("cases", "parse,load,snapshot,root,rollup,flash,pflash,apriori,solutions").split(",")));
+
+        dir = options.containsKey("dir") ? new File(options.get("dir")) : Files.createTempDirectory("amnesia-bench").toFile();
+        dir.mkdirs();
+        datasetFile = new File(dir, "dataset.csv");
+        setFile = new File(dir, "set.csv");
+        hierarchyFiles = new File[generator.getQis()];
+        generator.writeDataset(datasetFile);
+        generator.writeSetDataset(setFile);
+        for(int qi=0; qi<generator.getQis(); qi++){
+            hierarchyFiles[qi] = new File(dir, "hierarchy" + qi + ".txt");
+            generator.writeHierarchy(hierarchyFiles[qi], qi);
+        }
+        System.err.println("data in " + dir + ", " + generator.getLeaves() + " leaves per hierarchy");
+
+        if(cases.contains("parse")){
+            File numbersFile = new File(dir, "numbers.csv");
+            generator.writeNumbers(numbersFile);
+            measure("parse doubles", () -> parseNumbers(numbersFile));
+        }
+        if(cases.contains("load")){
+            measure("load csv", () -> loadDataset(false));
+        }
+        if(cases.contains("snapshot")){
+            loadDataset(true);
+            measure("load snapshot", () -> loadDataset(true));
+        }
+
+        Data data = loadDataset(true);
+        Map<Integer, Hierarchy> hierarchies = loadHierarchies();
+        if(cases.contains("root") || cases.contains("rollup")){
+            GeneralizationTable[] tables = new GeneralizationTable[hierarchies.size()];
+            int[] qidColumns = new int[hierarchies.size()];
+            int[] minLevels = new int[hierarchies.size()];
+            int[] maxLevels = new int[hierarchies.size()];
+            for(int qi=0; qi<tables.length; qi++){
+                Hierarchy h = hierarchies.get(qi);
+                qidColumns[qi] = qi;
+                maxLevels[qi] = h.getHeight() - 1;
+                tables[qi] = new GeneralizationTable(data, qi, h, h.getHeight());
+            }
+            Lattice lattice = new LatticeBuilder(qidColumns, minLevels, maxLevels).build();
+            LatticeNode bottom = lattice.getBottom();
+            if(cases.contains("root")){
+                measure("root frequency set", () -> {
+                    Buffer buffer = new Buffer(data, hierarchies, tables);
+                    buffer.compute(bottom);
+                    return buffer;
+                });
+            }
+            if(cases.contains("rollup")){
+                Buffer bottomBuffer = new Buffer(data, hierarchies, tables);
+                bottomBuffer.compute(bottom);
+                LatticeNode node = bottom.getSuccessors()[0];
+                measure("parent rollup", () -> {
+                    Buffer buffer = new Buffer(data, hierarchies, tables);
+                    buffer.compute(node, bottom, bottomBuffer, qidColumns);
+                    return buffer;
+                });
+            }
+        }
+
+        for(int k : ks){
+            if(cases.contains("flash")){
+                measure("flash k=" + k, () -> anonymize(new Flash(), data, hierarchies, k));
+            }
+            if(cases.contains("pflash")){
+                measure("pflash k=" + k + " threads=" + threads, () -> anonymize(new ParallelFlash(threads), data, hierarchies, k));
+            }
+        }
+
+        if(cases.contains("apriori")){
+            Data setData = new SETData(setFile.getPath(), ",");
+            setData.readDataset(null, null);
+            Hierarchy h = loadHierarchy(0);
+            h.buildDictionary(setData.getDictionary(0));
+            Map<Integer, Hierarchy> itemHierarchies = new HashMap<>();
+            itemHierarchies.put(0, h);
+            for(int m : ms){
+                measure("apriori k=" + ks[0] + " m=" + m, () -> {
+                    Apriori apriori = new Apriori();
+                    apriori.setDataset(setData);
+                    apriori.setHierarchies(itemHierarchies);
+                    Map<String, Integer> arguments = new HashMap<>();
+                    arguments.put("k", ks[0]);
+                    arguments.put("m", m);
+                    apriori.setArguments(arguments);
+                    apriori.anonymize();
+                    return apriori.getResultSet();
+                });
+            }
+        }
+
+        if(cases.contains("solutions")){
+            int[] qids = new int[hierarchies.size()];
+            String[] levels = new String[hierarchies.size()];
+            for(int qi=0; qi<qids.length; qi++){
+                qids[qi] = qi;
+                levels[qi] = String.valueOf(hierarchies.get(qi).getHeight() / 2);
+            }
+            String node = String.join(",", levels);
+            measure("solutions node=" + node, () -> new FindSolutions(data, hierarchies, node, qids, new HashMap<>()).getSolutionStatistics());
+        }
+    }
+
+    /**
+     * Reads a column of numbers, checking every value against Double.parseDouble
+     * @param file the csv file
+     * @return the sum of the numbers
+     * @throws IOException
+     */
+    private static double parseNumbers(File file) throws IOException{
+        double sum = 0;
+        try (DelimitedFileReader reader = new DelimitedFileReader(file.getPath(), ",")) {
+            while(reader.nextLine()){
+                double value = reader.parseDouble(0);
+                double expected = Double.parseDouble(reader.getString(0));
+                if(Double.compare(value, expected) != 0){
+                    throw new IllegalStateException("parsed " + reader.getString(0) + " as " + value + " instead of " + expected);
+                }
+                sum += value;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Loads the synthetic dataset
+     * @param useSnapshot false to parse the file without reading or writing its snapshot
+     * @return the dataset
+     */
+    private Data loadDataset(boolean useSnapshot){
+        String[] columnTypes = new String[generator.getQis()];
+        boolean[] checkColumns = new boolean[generator.getQis()];
+        Arrays.fill(columnTypes, "string");
+        Arrays.fill(checkColumns, true);
+        TXTData data = new TXTData(datasetFile.getPath(), ",");
+        data.setUseSnapshot(useSnapshot);
+        data.readDataset(columnTypes, checkColumns);
+        return data;
+    }
+
+    private Hierarchy loadHierarchy(int qi){
+        Hierarchy h = new HierarchyImplString(hierarchyFiles[qi].getPath());
+        h.load();
+        return h;
+    }
+
+    private Map<Integer, Hierarchy> loadHierarchies(){
+        Map<Integer, Hierarchy> hierarchies = new LinkedHashMap<>();
+        for(int qi=0; qi<generator.getQis(); qi++){
+            hierarchies.put(qi, loadHierarchy(qi));
+        }
+        return hierarchies;
+    }
+
+    private static Object anonymize(Algorithm algorithm, Data data, Map<Integer, Hierarchy> hierarchies, int k){
+        algorithm.setDataset(data);
+        algorithm.setHierarchies(hierarchies);
+        Map<String, Integer> arguments = new HashMap<>();
+        arguments.put("k", k);
+        algorithm.setArguments(arguments);
+        algorithm.anonymize();
+        return algorithm.getResultSet();
+    }
+
+    /**
+     * Runs a case and prints its times, with a hash of its results so that
+     * they are not optimized away
+     * @param name the name of the case
+     * @param task the case, returning its result
+     * @throws Exception
+     */
+    private void measure(String name, Callable<Object> task) throws Exception{
+        int hash = 0;
+        for(int i=0; i<warmup; i++){
+            hash += System.identityHashCode(task.call());
+        }
+        long total = 0;
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for(int i=0; i<iterations; i++){
+            long start = System.nanoTime();
+            hash += System.identityHashCode(task.call());
+            long time = System.nanoTime() - start;
+            total += time;
+            min = Math.min(min, time);
+            max = Math.max(max, time);
+        }
+        System.err.printf("%-40s mean %10.2f ms  min %10.2f ms  max %10.2f ms  hash %08x%n", name,
+                total / 1e6 / iterations, min / 1e6, max / 1e6, hash);
+    }
+}
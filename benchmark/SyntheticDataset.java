@@ -0,0 +1,263 @@
+/* 
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena" 
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ */
+package benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Generator of synthetic datasets and hierarchies for the benchmarks. Every
+ * quasi-identifier gets a balanced distinct hierarchy with the given height
+ * and fan-out, and its values are drawn from the leaves with a Zipf
+ * distribution, uniform for skew 0. The same hierarchy shape is used for the
+ * items of the set-valued dataset.
+ */
+public class SyntheticDataset {
+    private int rows = 100000;
+    private int qis = 4;
+    private int height = 4;
+    private int fanout = 4;
+    private double skew = 0.0;
+    private int maxItems = 5;
+    private long seed = 1;
+
+    public SyntheticDataset setRows(int rows){
+        this.rows = rows;
+        return this;
+    }
+
+    public SyntheticDataset setQis(int qis){
+        this.qis = qis;
+        return this;
+    }
+
+    /**
+     * Sets the height of the hierarchies, leaf level and root included
+     * @param height the height, at least 2
+     * @return this generator
+     */
+    public SyntheticDataset setHeight(int height){
+        this.height = height;
+        return this;
+    }
+
+    public SyntheticDataset setFanout(int fanout){
+        this.fanout = fanout;
+        return this;
+    }
+
+    /**
+     * Sets the exponent of the Zipf distribution of the values
+     * @param skew the exponent, 0 for uniform values
+     * @return this generator
+     */
+    public SyntheticDataset setSkew(double skew){
+        this.skew = skew;
+        return this;
+    }
+
+    public SyntheticDataset setMaxItems(int maxItems){
+        this.maxItems = maxItems;
+        return this;
+    }
+
+    public SyntheticDataset setSeed(long seed){
+        this.seed = seed;
+        return this;
+    }
+
+    public int getQis(){
+        return qis;
+    }
+
+    /**
+     * Gets the number of leaves of every hierarchy
+     * @return fanout to the power of height - 1
+     */
+    public int getLeaves(){
+        int leaves = 1;
+        for(int level=1; level<height; level++){
+            leaves *= fanout;
+        }
+        return leaves;
+    }
+
+    /**
+     * Name of a hierarchy node
+     * @param qi the quasi-identifier
+     * @param depth the depth of the node, 0 for the root
+     * @param index the position of the node in its level
+     * @return the name of the node
+     */
+    private String getName(int qi, int depth, int index){
+        if(depth == height - 1){
+            return "v" + qi + "_" + index;
+        }
+        return "g" + qi + "_" + depth + "_" + index;
+    }
+
+    /**
+     * Writes the dataset with one string column per quasi-identifier
+     * @param file the csv file
+     * @throws IOException
+     */
+    public void writeDataset(File file) throws IOException{
+        Random random = new Random(seed);
+        double[] cdf = getCdf();
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            for(int qi=0; qi<qis; qi++){
+                out.write((qi > 0 ? "," : "") + "qi" + qi);
+            }
+            out.newLine();
+            for(int row=0; row<rows; row++){
+                for(int qi=0; qi<qis; qi++){
+                    if(qi > 0){
+                        out.write(',');
+                    }
+                    out.write(getName(qi, height - 1, sample(cdf, random)));
+                }
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Writes a set-valued dataset whose items are the leaves of the
+     * hierarchy of quasi-identifier 0
+     * @param file the set-valued file
+     * @throws IOException
+     */
+    public void writeSetDataset(File file) throws IOException{
+        Random random = new Random(seed);
+        double[] cdf = getCdf();
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            out.write("items");
+            out.newLine();
+            for(int row=0; row<rows; row++){
+                int items = 1 + random.nextInt(maxItems);
+                for(int item=0; item<items; item++){
+                    if(item > 0){
+                        out.write(',');
+                    }
+                    out.write(getName(0, height - 1, sample(cdf, random)));
+                }
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Writes a column of numbers: fields that the fast path of the reader
+     * has to leave to Double.parseDouble, such as 19 digit values that
+     * overflow a long, followed by random numbers of up to 20 integer and
+     * 20 fraction digits
+     * @param file the csv file
+     * @throws IOException
+     */
+    public void writeNumbers(File file) throws IOException{
+        String[] edgeCases = {"9999999999999999999", "9223372036854775808", "-9223372036854775809",
+            "999999999999999999", "1234567890123456789", "12345678901234567.8", "0.1234567890123456789",
+            "9007199254740992", "9007199254740993", "0", "-0", "+5", ".5", "5.", "1e10", "-1.5E-5"};
+        Random random = new Random(seed);
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            for(String edgeCase : edgeCases){
+                out.write(edgeCase);
+                out.newLine();
+            }
+            StringBuilder number = new StringBuilder();
+            for(int row=0; row<rows; row++){
+                number.setLength(0);
+                if(random.nextBoolean()){
+                    number.append('-');
+                }
+                number.append(1 + random.nextInt(9));
+                for(int digit=random.nextInt(20); digit>0; digit--){
+                    number.append(random.nextInt(10));
+                }
+                int fractionDigits = random.nextInt(21);
+                if(fractionDigits > 0){
+                    number.append('.');
+                    for(int digit=0; digit<fractionDigits; digit++){
+                        number.append(random.nextInt(10));
+                    }
+                }
+                out.write(number.toString());
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Writes the distinct hierarchy of a quasi-identifier, from the parents
+     * of the leaves up to the root
+     * @param file the hierarchy file
+     * @param qi the quasi-identifier
+     * @throws IOException
+     */
+    public void writeHierarchy(File file, int qi) throws IOException{
+        try (BufferedWriter out = new BufferedWriter(new FileWriter(file))) {
+            out.write("distinct\nname qi" + qi + "\ntype string\nheight " + height + "\n\n");
+            int nodes = getLeaves() / fanout;
+            for(int depth=height-2; depth>=0; depth--){
+                for(int index=0; index<nodes; index++){
+                    out.write(getName(qi, depth, index) + " has");
+                    for(int child=0; child<fanout; child++){
+                        out.write(" " + getName(qi, depth + 1, index * fanout + child));
+                    }
+                    out.newLine();
+                }
+                out.newLine();
+                nodes /= fanout;
+            }
+        }
+    }
+
+    private double[] getCdf(){
+        int leaves = getLeaves();
+        double[] cdf = new double[leaves];
+        double sum = 0;
+        for(int i=0; i<leaves; i++){
+            sum += 1.0 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        for(int i=0; i<leaves; i++){
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int sample(double[] cdf, Random random){
+        double u = random.nextDouble();
+        int low = 0;
+        int high = cdf.length - 1;
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(cdf[mid] < u){
+                low = mid + 1;
+            }
+            else{
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
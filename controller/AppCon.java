@@ -2,6 +2,7 @@ package controller;
 
 
 import algorithms.Algorithm;
+import algorithms.RunMetrics;
 import algorithms.flash.Flash;
 import algorithms.flash.LatticeNode;
 import algorithms.kmanonymity.Apriori;
@@ -75,6 +76,7 @@ import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 import javax.activation.MimetypesFileTypeMap;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletOutputStream;
@@ -1139,6 +1141,7 @@ public class AppCon {
 
             return message;
         }
+        session.setAttribute("metrics", algorithm.getMetrics());
 
         hierarchies = new HashMap<>();
         session.setAttribute("quasiIdentifiers", quasiIdentifiers);
@@ -1172,6 +1175,11 @@ public class AppCon {
         return "ok";
     }
     
+    @RequestMapping(value="/action/getmetrics", method = RequestMethod.GET)
+    public @ResponseBody RunMetrics getMetrics (HttpSession session) {
+        return (RunMetrics) session.getAttribute("metrics");
+    }
+    
     @RequestMapping(value="/action/informationloss", method = RequestMethod.GET) //method = RequestMethod.POST
     public @ResponseBody String InformationLoss ( HttpSession session) {
         Set<LatticeNode> infoLossFirstStep = new HashSet<>();
@@ -3087,7 +3095,7 @@ System.out.println("url = " + url);
             String firstLine = br.readLine();
             br.close();
             
-            String splitLine[] = firstLine.split(del);
+            String splitLine[] = firstLine.split(Pattern.quote(del));
             out.write("////////////////////// check columns, vartypes /////////////////////////////");
             out.newLine();
             for(int i=0; i<splitLine.length; i++){
@@ -3381,6 +3389,7 @@ System.out.println("url = " + url);
 
             return message;
         }
+        session.setAttribute("metrics", algorithm.getMetrics());
 
         hierarchies = new HashMap<>();
         session.setAttribute("quasiIdentifiers", quasiIdentifiers);
@@ -24,20 +24,19 @@ public class CheckDatasetForKAnomymous {
     public int compute(Set<Integer> sQids){
         int k = -1;
         Map<String,Integer> freq = new HashMap<String,Integer>();
-        double [][] data = null;
+        int columnsNum = dataset.getColNamesType().size();
         
-        data = dataset.getDataSet();
-        for (int i = 0 ; i < data.length; i++ ){
+        for (int i = 0 ; i < dataset.getDataLenght(); i++ ){
             String row = null;
             boolean FLAG = false;
-            for ( int j = 0 ; j < data[i].length ; j ++ ){
+            for ( int j = 0 ; j < columnsNum ; j ++ ){
                 if (sQids.contains(j)){
                     if ( FLAG == false){
-                        row = data[i][j] + "";
+                        row = dataset.getValue(i, j) + "";
                         FLAG = true;
                     }
                     else{
-                        row = row + "," + data[i][j];
+                        row = row + "," + dataset.getValue(i, j);
                     }
                 }
             }
@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena"
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ */
+package data;
+
+import java.util.Arrays;
+
+/**
+ * Column-wise storage of a tabular dataset. Dictionary and int columns are
+ * kept as int arrays, double columns as double arrays, and every column has
+ * a bitmap of its empty values. Empty int values are stored as 2147483646 and
+ * empty double values as NaN, the same as in the row-wise double[][] form.
+ */
+public class ColumnStore {
+    public static final int NULL_INT = 2147483646;
+
+    private int rows = 0;
+    private int[][] intColumns = null;
+    private double[][] doubleColumns = null;
+    private long[][] nulls = null;
+
+    /**
+     * Creates an empty store
+     * @param rows the number of rows
+     * @param isDouble true for the columns that hold double values
+     */
+    public ColumnStore(int rows, boolean[] isDouble){
+        this.rows = rows;
+        intColumns = new int[isDouble.length][];
+        doubleColumns = new double[isDouble.length][];
+        nulls = new long[isDouble.length][(rows + 63) >>> 6];
+        for(int column=0; column<isDouble.length; column++){
+            if(isDouble[column]){
+                doubleColumns[column] = new double[rows];
+            }
+            else{
+                intColumns[column] = new int[rows];
+            }
+        }
+    }
+
+    /**
+     * Creates an empty store with no rows, to be filled with addRow
+     * @param isDouble true for the columns that hold double values
+     */
+    public ColumnStore(boolean[] isDouble){
+        this(0, isDouble);
+    }
+
+    /**
+     * Appends an empty row, growing the columns if needed
+     * @return the position of the new row
+     */
+    public int addRow(){
+        if(rows == getCapacity()){
+            resize(Math.max(1024, rows + (rows >> 1)));
+        }
+        return rows++;
+    }
+
+    /**
+     * Shrinks the columns to the number of rows, after the last addRow
+     */
+    public void trim(){
+        if(rows != getCapacity()){
+            resize(rows);
+        }
+    }
+
+    private int getCapacity(){
+        if(intColumns.length == 0){
+            return Integer.MAX_VALUE;
+        }
+        return (intColumns[0] != null) ? intColumns[0].length : doubleColumns[0].length;
+    }
+
+    private void resize(int capacity){
+        for(int column=0; column<intColumns.length; column++){
+            if(intColumns[column] != null){
+                intColumns[column] = Arrays.copyOf(intColumns[column], capacity);
+            }
+            else{
+                doubleColumns[column] = Arrays.copyOf(doubleColumns[column], capacity);
+            }
+            nulls[column] = Arrays.copyOf(nulls[column], (capacity + 63) >>> 6);
+        }
+    }
+
+    /**
+     * Creates a store from the row-wise form of a dataset
+     * @param dataSet the dataset, one array per row
+     * @param isDouble true for the columns that hold double values
+     * @return the column store
+     */
+    public static ColumnStore fromRows(double[][] dataSet, boolean[] isDouble){
+        ColumnStore store = new ColumnStore(dataSet.length, isDouble);
+        for(int row=0; row<dataSet.length; row++){
+            for(int column=0; column<isDouble.length; column++){
+                store.setValue(row, column, dataSet[row][column]);
+            }
+        }
+        return store;
+    }
+
+    public void setInt(int row, int column, int value){
+        intColumns[column][row] = value;
+    }
+
+    public void setDouble(int row, int column, double value){
+        doubleColumns[column][row] = value;
+    }
+
+    /**
+     * Marks a value as empty
+     * @param row the row
+     * @param column the column
+     */
+    public void setNull(int row, int column){
+        nulls[column][row >>> 6] |= 1L << row;
+        if(doubleColumns[column] != null){
+            doubleColumns[column][row] = Double.NaN;
+        }
+        else{
+            intColumns[column][row] = NULL_INT;
+        }
+    }
+
+    /**
+     * Copies all rows of another store with the same columns
+     * @param source the other store
+     * @param offset the row where the first copied row goes
+     */
+    public void copyRows(ColumnStore source, int offset){
+        for(int column=0; column<intColumns.length; column++){
+            if(intColumns[column] != null){
+                System.arraycopy(source.intColumns[column], 0, intColumns[column], offset, source.rows);
+            }
+            else{
+                System.arraycopy(source.doubleColumns[column], 0, doubleColumns[column], offset, source.rows);
+            }
+
+            long[] sourceNulls = source.nulls[column];
+            for(int word=0; word<sourceNulls.length; word++){
+                long bits = sourceNulls[word];
+                while(bits != 0){
+                    int row = offset + (word << 6) + Long.numberOfTrailingZeros(bits);
+                    nulls[column][row >>> 6] |= 1L << row;
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets a value given in the row-wise encoding
+     * @param row the row
+     * @param column the column
+     * @param value the value, 2147483646 or NaN for empty values
+     */
+    public void setValue(int row, int column, double value){
+        if(doubleColumns[column] != null){
+            if(Double.isNaN(value)){
+                setNull(row, column);
+            }
+            else{
+                doubleColumns[column][row] = value;
+            }
+        }
+        else{
+            if(value == NULL_INT){
+                setNull(row, column);
+            }
+            else{
+                intColumns[column][row] = (int)value;
+            }
+        }
+    }
+
+    /**
+     * Gets a value in the row-wise encoding
+     * @param row the row
+     * @param column the column
+     * @return the value
+     */
+    public double getValue(int row, int column){
+        if(doubleColumns[column] != null){
+            return doubleColumns[column][row];
+        }
+        return intColumns[column][row];
+    }
+
+    public boolean isNull(int row, int column){
+        return (nulls[column][row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * Gets the bitmap of the empty values of a column
+     * @param column the column
+     * @return one bit per row, set for empty values
+     */
+    public long[] getNulls(int column){
+        return nulls[column];
+    }
+
+    public boolean isDouble(int column){
+        return doubleColumns[column] != null;
+    }
+
+    /**
+     * Gets the values of a dictionary or int column
+     * @param column the column
+     * @return the values of the column, null if it is a double column
+     */
+    public int[] getIntColumn(int column){
+        return intColumns[column];
+    }
+
+    /**
+     * Gets the values of a double column
+     * @param column the column
+     * @return the values of the column, null if it is not a double column
+     */
+    public double[] getDoubleColumn(int column){
+        return doubleColumns[column];
+    }
+
+    /**
+     * Builds the row-wise form of a row
+     * @param row the row
+     * @return the values of the row
+     */
+    public double[] getRow(int row){
+        double[] values = new double[intColumns.length];
+        for(int column=0; column<values.length; column++){
+            values[column] = getValue(row, column);
+        }
+        return values;
+    }
+
+    /**
+     * Builds the row-wise form of the dataset
+     * @return the dataset, one array per row
+     */
+    public double[][] toRows(){
+        double[][] dataSet = new double[rows][];
+        for(int row=0; row<rows; row++){
+            dataSet[row] = getRow(row);
+        }
+        return dataSet;
+    }
+
+    public int getRows(){
+        return rows;
+    }
+
+    public int getColumns(){
+        return intColumns.length;
+    }
+}
@@ -36,6 +36,10 @@ public interface Data {
     public double[][] getDataSet();
     public void setData(double[][] _data);
     public int getDataLenght();
+    public double getValue(int row, int column);
+    public int[] getIntColumn(int column);
+    public double[] getDoubleColumn(int column);
+    public boolean isNull(int row, int column);
     public void print();
     public String save(boolean[] checkColumns);
     public void preprocessing();
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena"
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ */
+package data;
+
+import dictionary.DictionaryString;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary cache of a loaded tabular dataset. The file starts with a preamble
+ * holding the format version, the size and modification time of the source
+ * file and the delimiter it was parsed with, followed by the arrays of the
+ * columns and their empty value bitmaps, and ends with the column names, types
+ * and dictionaries. The columns are copied back into arrays in bulk through
+ * memory mappings of the file, and the snapshot is only used while all the
+ * preamble fields match.
+ */
+public class DatasetSnapshot {
+    private static final int magic = 0x414D4E53;
+    private static final int version = 2;
+    //fixed part of the preamble, followed by the delimiter
+    private static final int preambleSize = 52;
+    //elements written or mapped at a time
+    private static final int window = 1 << 20;
+
+    private String[] columnNames = null;
+    private String[] columnTypes = null;
+    private boolean[] checkColumns = null;
+    private String delimiter = null;
+    private ColumnStore store = null;
+    private Map<Integer, DictionaryString> dictionaries = null;
+
+    /**
+     * Creates a snapshot of a dataset
+     * @param columnNames the names of the loaded columns
+     * @param columnTypes the types of the loaded columns
+     * @param checkColumns true for the columns of the source file that are loaded
+     * @param delimiter the delimiter the source file was parsed with
+     * @param store the values of the dataset
+     * @param dictionaries the dictionaries of the string and date columns
+     */
+    public DatasetSnapshot(String[] columnNames, String[] columnTypes, boolean[] checkColumns,
+            String delimiter, ColumnStore store, Map<Integer, DictionaryString> dictionaries){
+        this.columnNames = columnNames;
+        this.columnTypes = columnTypes;
+        this.checkColumns = checkColumns;
+        this.delimiter = delimiter;
+        this.store = store;
+        this.dictionaries = dictionaries;
+    }
+
+    /**
+     * Writes the snapshot
+     * @param file the snapshot file
+     * @param source the file the dataset was loaded from
+     * @throws IOException
+     */
+    public void write(File file, File source) throws IOException{
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            int rows = store.getRows();
+            byte[] delimiterBytes = delimiter.getBytes(StandardCharsets.UTF_8);
+            long columnsOffset = preambleSize + delimiterBytes.length;
+
+            //columns
+            channel.position(columnsOffset);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(8 * window);
+            for(int column=0; column<columnTypes.length; column++){
+                if(store.isDouble(column)){
+                    double[] values = store.getDoubleColumn(column);
+                    for(int from=0; from<rows; from+=window){
+                        int length = Math.min(window, rows - from);
+                        buffer.clear();
+                        buffer.asDoubleBuffer().put(values, from, length);
+                        buffer.limit(8 * length);
+                        writeFully(channel, buffer);
+                    }
+                }
+                else{
+                    int[] values = store.getIntColumn(column);
+                    for(int from=0; from<rows; from+=window){
+                        int length = Math.min(window, rows - from);
+                        buffer.clear();
+                        buffer.asIntBuffer().put(values, from, length);
+                        buffer.limit(4 * length);
+                        writeFully(channel, buffer);
+                    }
+                }
+                long[] nulls = store.getNulls(column);
+                for(int from=0; from<nulls.length; from+=window){
+                    int length = Math.min(window, nulls.length - from);
+                    buffer.clear();
+                    buffer.asLongBuffer().put(nulls, from, length);
+                    buffer.limit(8 * length);
+                    writeFully(channel, buffer);
+                }
+            }
+
+            //names, types and dictionaries
+            long metaOffset = channel.position();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(checkColumns.length);
+            for(boolean check : checkColumns){
+                out.writeBoolean(check);
+            }
+            for(int column=0; column<columnTypes.length; column++){
+                writeString(out, columnNames[column]);
+                writeString(out, columnTypes[column]);
+                DictionaryString dict = dictionaries.get(column);
+                if(dict == null){
+                    out.writeInt(-1);
+                    continue;
+                }
+                int[] ids = dict.getIds();
+                out.writeInt(ids.length);
+                for(int id : ids){
+                    out.writeInt(id);
+                    writeString(out, dict.getIdToString(id));
+                }
+            }
+            out.flush();
+
+            //preamble, written last so that an interrupted write is never valid
+            buffer.clear();
+            buffer.putInt(magic).putInt(version);
+            buffer.putLong(source.length()).putLong(source.lastModified());
+            buffer.putInt(rows).putInt(columnTypes.length);
+            buffer.putLong(columnsOffset).putLong(metaOffset);
+            buffer.putInt(delimiterBytes.length).put(delimiterBytes);
+            buffer.flip();
+            channel.position(0);
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException{
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException{
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException{
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a snapshot
+     * @param file the snapshot file
+     * @param source the file the dataset was loaded from
+     * @param delimiter the delimiter the source file is parsed with
+     * @return the snapshot, null if there is no snapshot, it was written by
+     * another version, it is older than the source file or the source file was
+     * parsed with another delimiter
+     * @throws IOException
+     */
+    public static DatasetSnapshot read(File file, File source, String delimiter) throws IOException{
+        if(!file.isFile() || file.length() < preambleSize){
+            return null;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer preamble = channel.map(FileChannel.MapMode.READ_ONLY, 0, preambleSize);
+            if(preamble.getInt() != magic || preamble.getInt() != version){
+                return null;
+            }
+            if(preamble.getLong() != source.length() || preamble.getLong() != source.lastModified()){
+                return null;
+            }
+            int rows = preamble.getInt();
+            int columnsNum = preamble.getInt();
+            long columnsOffset = preamble.getLong();
+            long metaOffset = preamble.getLong();
+            int delimiterLength = preamble.getInt();
+            if(delimiterLength != columnsOffset - preambleSize || columnsOffset > file.length()){
+                return null;
+            }
+            byte[] delimiterBytes = new byte[delimiterLength];
+            channel.map(FileChannel.MapMode.READ_ONLY, preambleSize, delimiterLength).get(delimiterBytes);
+            if(!new String(delimiterBytes, StandardCharsets.UTF_8).equals(delimiter)){
+                return null;
+            }
+
+            //names, types and dictionaries
+            channel.position(metaOffset);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+            boolean[] checkColumns = new boolean[in.readInt()];
+            for(int i=0; i<checkColumns.length; i++){
+                checkColumns[i] = in.readBoolean();
+            }
+            String[] columnNames = new String[columnsNum];
+            String[] columnTypes = new String[columnsNum];
+            boolean[] isDouble = new boolean[columnsNum];
+            Map<Integer, DictionaryString> dictionaries = new HashMap<>();
+            for(int column=0; column<columnsNum; column++){
+                columnNames[column] = readString(in);
+                columnTypes[column] = readString(in);
+                isDouble[column] = columnTypes[column].contains("double");
+                int entries = in.readInt();
+                if(entries < 0){
+                    continue;
+                }
+                DictionaryString dict = new DictionaryString();
+                for(int i=0; i<entries; i++){
+                    int id = in.readInt();
+                    String value = readString(in);
+                    dict.putIdToString(id, value);
+                    dict.putStringToId(value, id);
+                }
+                dictionaries.put(column, dict);
+            }
+
+            //columns
+            ColumnStore store = new ColumnStore(rows, isDouble);
+            long offset = columnsOffset;
+            for(int column=0; column<columnsNum; column++){
+                if(isDouble[column]){
+                    double[] values = store.getDoubleColumn(column);
+                    for(int from=0; from<rows; from+=window){
+                        int length = Math.min(window, rows - from);
+                        channel.map(FileChannel.MapMode.READ_ONLY, offset, 8L * length).asDoubleBuffer().get(values, from, length);
+                        offset += 8L * length;
+                    }
+                }
+                else{
+                    int[] values = store.getIntColumn(column);
+                    for(int from=0; from<rows; from+=window){
+                        int length = Math.min(window, rows - from);
+                        channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * length).asIntBuffer().get(values, from, length);
+                        offset += 4L * length;
+                    }
+                }
+                long[] nulls = store.getNulls(column);
+                for(int from=0; from<nulls.length; from+=window){
+                    int length = Math.min(window, nulls.length - from);
+                    channel.map(FileChannel.MapMode.READ_ONLY, offset, 8L * length).asLongBuffer().get(nulls, from, length);
+                    offset += 8L * length;
+                }
+            }
+
+            return new DatasetSnapshot(columnNames, columnTypes, checkColumns, delimiter, store, dictionaries);
+        }
+    }
+
+    public String[] getColumnNames(){
+        return columnNames;
+    }
+
+    public String[] getColumnTypes(){
+        return columnTypes;
+    }
+
+    public boolean[] getCheckColumns(){
+        return checkColumns;
+    }
+
+    public String getDelimiter(){
+        return delimiter;
+    }
+
+    public ColumnStore getStore(){
+        return store;
+    }
+
+    public Map<Integer, DictionaryString> getDictionaries(){
+        return dictionaries;
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena"
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ */
+package data;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Reads a delimited text file line by line through a large byte buffer. The
+ * fields of a line are found by scanning for the delimiter bytes, and numbers
+ * are parsed from the bytes without creating strings.
+ */
+public class DelimitedFileReader implements Closeable {
+    private static final int bufferSize = 1 << 20;
+    private static final double[] powersOfTen = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private FileChannel channel = null;
+    private final Charset charset;
+    private final byte[] delimiter;
+    private byte[] bytes = null;
+    //offset in the file of the first byte of the buffer
+    private long base = 0;
+    //lines starting at or after this offset are not read
+    private long end = Long.MAX_VALUE;
+    private int position = 0;
+    private int limit = 0;
+    private boolean eof = false;
+
+    private int[] fieldStart = new int[16];
+    private int[] fieldEnd = new int[16];
+    private int fieldsNum = 0;
+
+    /**
+     * Opens a delimited file
+     * @param file the path of the file
+     * @param delimiter the delimiter of the fields
+     * @throws IOException
+     */
+    public DelimitedFileReader(String file, String delimiter) throws IOException{
+        channel = new FileInputStream(file).getChannel();
+        charset = Charset.defaultCharset();
+        this.delimiter = delimiter.getBytes(charset);
+        bytes = new byte[bufferSize];
+    }
+
+    /**
+     * Opens a byte range of a delimited file. The range holds the lines that
+     * start inside it, so that consecutive ranges split the file on line
+     * boundaries
+     * @param file the path of the file
+     * @param delimiter the delimiter of the fields
+     * @param start the offset where the range starts
+     * @param end the offset where the range ends
+     * @throws IOException
+     */
+    public DelimitedFileReader(String file, String delimiter, long start, long end) throws IOException{
+        this(file, delimiter);
+        if(start > 0){
+            //skip the line that ends at or after the start of the range
+            base = start - 1;
+            channel.position(base);
+            nextLine();
+        }
+        this.end = end;
+    }
+
+    /**
+     * Moves to the next line of the file
+     * @return false if there are no more lines
+     * @throws IOException
+     */
+    public boolean nextLine() throws IOException{
+        if(base + position >= end){
+            return false;
+        }
+        int scan = position;
+        int lineEnd = -1;
+        while(lineEnd < 0){
+            for(int i=scan; i<limit; i++){
+                if(bytes[i] == '\n'){
+                    lineEnd = i;
+                    break;
+                }
+            }
+            if(lineEnd >= 0){
+                break;
+            }
+            if(eof){
+                if(position == limit){
+                    return false;
+                }
+                lineEnd = limit;
+                break;
+            }
+            scan = limit - position;
+            fill();
+        }
+
+        int end = lineEnd;
+        if(end > position && bytes[end-1] == '\r'){
+            end--;
+        }
+        split(position, end);
+        position = (lineEnd < limit) ? lineEnd + 1 : limit;
+        return true;
+    }
+
+    /**
+     * Moves the unread bytes to the start of the buffer, growing it if the
+     * current line does not fit, and reads more bytes from the file
+     */
+    private void fill() throws IOException{
+        int remaining = limit - position;
+        if(remaining == bytes.length){
+            byte[] newBytes = new byte[bytes.length << 1];
+            System.arraycopy(bytes, position, newBytes, 0, remaining);
+            bytes = newBytes;
+        }
+        else{
+            System.arraycopy(bytes, position, bytes, 0, remaining);
+        }
+        base += position;
+        position = 0;
+        limit = remaining;
+
+        int read = channel.read(ByteBuffer.wrap(bytes, limit, bytes.length - limit));
+        if(read < 0){
+            eof = true;
+        }
+        else{
+            limit += read;
+        }
+    }
+
+    private void split(int start, int end){
+        fieldsNum = 0;
+        int fieldBegin = start;
+        int i = start;
+        while(i <= end - delimiter.length){
+            if(isDelimiter(i)){
+                addField(fieldBegin, i);
+                i += delimiter.length;
+                fieldBegin = i;
+            }
+            else{
+                i++;
+            }
+        }
+        addField(fieldBegin, end);
+    }
+
+    private boolean isDelimiter(int offset){
+        for(int j=0; j<delimiter.length; j++){
+            if(bytes[offset + j] != delimiter[j]){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addField(int start, int end){
+        if(fieldsNum == fieldStart.length){
+            int[] newStart = new int[fieldsNum << 1];
+            int[] newEnd = new int[fieldsNum << 1];
+            System.arraycopy(fieldStart, 0, newStart, 0, fieldsNum);
+            System.arraycopy(fieldEnd, 0, newEnd, 0, fieldsNum);
+            fieldStart = newStart;
+            fieldEnd = newEnd;
+        }
+        fieldStart[fieldsNum] = start;
+        fieldEnd[fieldsNum] = end;
+        fieldsNum++;
+    }
+
+    /**
+     * Gets the offset in the file of the next line
+     * @return the offset of the next line
+     */
+    public long getOffset(){
+        return base + position;
+    }
+
+    /**
+     * Gets the size of the file
+     * @return the size in bytes
+     * @throws IOException
+     */
+    public long getFileSize() throws IOException{
+        return channel.size();
+    }
+
+    /**
+     * Gets the number of fields of the current line
+     * @return the number of fields
+     */
+    public int getFieldsNum(){
+        return fieldsNum;
+    }
+
+    public boolean isEmpty(int field){
+        return fieldStart[field] == fieldEnd[field];
+    }
+
+    /**
+     * Gets a field of the current line as a string
+     * @param field the position of the field
+     * @return the value of the field
+     */
+    public String getString(int field){
+        return new String(bytes, fieldStart[field], fieldEnd[field] - fieldStart[field], charset);
+    }
+
+    /**
+     * Parses a field of the current line as an int
+     * @param field the position of the field
+     * @return the value of the field
+     * @throws NumberFormatException if the field is not an int
+     */
+    public int parseInt(int field){
+        int start = fieldStart[field];
+        int end = fieldEnd[field];
+        boolean negative = false;
+        if(start < end && (bytes[start] == '-' || bytes[start] == '+')){
+            negative = bytes[start] == '-';
+            start++;
+        }
+
+        //plain numbers of up to 9 digits cannot overflow
+        if(start < end && end - start <= 9){
+            int value = 0;
+            int i = start;
+            for(; i<end; i++){
+                int digit = bytes[i] - '0';
+                if(digit < 0 || digit > 9){
+                    break;
+                }
+                value = value * 10 + digit;
+            }
+            if(i == end){
+                return negative ? -value : value;
+            }
+        }
+
+        return Integer.parseInt(getString(field));
+    }
+
+    /**
+     * Parses a field of the current line as a double
+     * @param field the position of the field
+     * @return the value of the field
+     * @throws NumberFormatException if the field is not a number
+     */
+    public double parseDouble(int field){
+        int start = fieldStart[field];
+        int end = fieldEnd[field];
+        boolean negative = false;
+        if(start < end && (bytes[start] == '-' || bytes[start] == '+')){
+            negative = bytes[start] == '-';
+            start++;
+        }
+
+        //digits with an optional decimal point, exact as long as the digits
+        //and the power of ten are exact doubles; longer fields, whose 19th
+        //digit could overflow the long, are left to Double.parseDouble
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        int i = start;
+        for(; i<end && digits<18; i++){
+            byte b = bytes[i];
+            if(b == '.' && fractionDigits < 0){
+                fractionDigits = 0;
+            }
+            else if(b >= '0' && b <= '9'){
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if(fractionDigits >= 0){
+                    fractionDigits++;
+                }
+            }
+            else{
+                break;
+            }
+        }
+        if(i == end && digits > 0 && mantissa <= (1L << 53)){
+            double value = mantissa;
+            if(fractionDigits > 0){
+                if(fractionDigits >= powersOfTen.length){
+                    return Double.parseDouble(getString(field));
+                }
+                value = value / powersOfTen[fractionDigits];
+            }
+            return negative ? -value : value;
+        }
+
+        return Double.parseDouble(getString(field));
+    }
+
+    @Override
+    public void close() throws IOException{
+        channel.close();
+    }
+}
@@ -32,26 +32,26 @@ public class Pair {
     
     public void findMin(Integer columnIndex) {
         //Integer columnIndex = dataset.getColumnByName(selectedColumn);
-        double[][] data = dataset.getDataSet();
+        int rows = dataset.getDataLenght();
         int counter = 0;
         
         if (vartype == null){
-            for ( int i = 0 ; i < data.length; i ++){
-                if ( data[i][columnIndex] != 2147483646.0 &&  data[i][columnIndex] != Double.NaN ){
-                    min = data[i][columnIndex];
-                    max = data[i][columnIndex];
+            for ( int i = 0 ; i < rows; i ++){
+                if ( dataset.getValue(i, columnIndex) != 2147483646.0 &&  dataset.getValue(i, columnIndex) != Double.NaN ){
+                    min = dataset.getValue(i, columnIndex);
+                    max = dataset.getValue(i, columnIndex);
                     counter ++;
                     break;
                 }
             }
 
-            for( int i=counter; i<data.length; i++){
-                if ( data[i][columnIndex] != 2147483646.0 &&  data[i][columnIndex] != Double.NaN ){
-                    if(data[i][columnIndex] > max){
-                        max = data[i][columnIndex];
+            for( int i=counter; i<rows; i++){
+                if ( dataset.getValue(i, columnIndex) != 2147483646.0 &&  dataset.getValue(i, columnIndex) != Double.NaN ){
+                    if(dataset.getValue(i, columnIndex) > max){
+                        max = dataset.getValue(i, columnIndex);
                     } 
-                    else if(data[i][columnIndex] < min ){
-                        min = data[i][columnIndex];
+                    else if(dataset.getValue(i, columnIndex) < min ){
+                        min = dataset.getValue(i, columnIndex);
                     }
                 }
             }
@@ -61,8 +61,8 @@ public class Pair {
             String date;
             DictionaryString dictionary = dataset.getDictionary(columnIndex);
             
-            for(int i=0; i<data.length; i++){
-                Double d = (Double)data[i][columnIndex];
+            for(int i=0; i<rows; i++){
+                Double d = (Double)dataset.getValue(i, columnIndex);
                 date = dictionary.getIdToString(d.intValue());
                 if ( !date.equals("NaN") ){
                     temp = date.split("/");
@@ -74,8 +74,8 @@ public class Pair {
                 
             }
             
-            for( int i=counter; i<data.length; i++){
-                Double d = (Double)data[i][columnIndex];   
+            for( int i=counter; i<rows; i++){
+                Double d = (Double)dataset.getValue(i, columnIndex);   
                 date = dictionary.getIdToString(d.intValue());
                 if ( !date.equals("NaN") ){
                     temp = date.split("/");
@@ -145,6 +145,36 @@ public class SETData implements Data {
         return dataSet.length;
     }
     
+    @Override
+    public double getValue(int row, int column) {
+        return dataSet[row][column];
+    }
+    
+    /**
+     * Set-valued data are stored per transaction and have no int columns
+     * @param column the column
+     * @return null
+     */
+    @Override
+    public int[] getIntColumn(int column) {
+        return null;
+    }
+    
+    /**
+     * Set-valued data are stored per transaction and have no double columns
+     * @param column the column
+     * @return null
+     */
+    @Override
+    public double[] getDoubleColumn(int column) {
+        return null;
+    }
+    
+    @Override
+    public boolean isNull(int row, int column) {
+        return false;
+    }
+    
     @Override
     public void print() {
         int i,j;
@@ -23,8 +23,10 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonView;
 import java.io.BufferedReader;
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
@@ -43,8 +45,14 @@ import hierarchy.ranges.RangeDouble;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 import javax.persistence.Column;
 import jsoninterface.View;
 import java.util.Date;
@@ -60,10 +68,14 @@ public class TXTData implements Data{
     
     @JsonView(View.GetColumnNames.class)
     private String inputFile = null;
-    private double dataSet[][] = null;
+    private ColumnStore columnStore = null;
     private int sizeOfRows = 0;
+    //bytes of the file below which it is loaded by a single thread
+    private static final long chunkSize = 32 << 20;
     private int sizeOfCol = 0;
     private String delimeter = null;
+    //whether loads read and write the binary snapshot next to the file
+    private boolean useSnapshot = true;
     
     @JsonView(View.GetDataTypes.class)
     private Map <Integer,String> colNamesType = null;
@@ -117,8 +129,64 @@ public class TXTData implements Data{
              
     }
 
+    /**
+     * Builds a row-wise copy of the dataset. The copy is not kept, so callers
+     * that only read values should use getValue or the column getters
+     * @return the dataset, one array per row
+     */
     public double[][] getDataSet() {
-        return dataSet;
+        if(columnStore == null){
+            return null;
+        }
+        return columnStore.toRows();
+    }
+    
+    /**
+     * Gets a value of the dataset
+     * @param row the row
+     * @param column the column
+     * @return the value, as stored in the array of the dataset
+     */
+    @Override
+    public double getValue(int row, int column) {
+        return columnStore.getValue(row, column);
+    }
+    
+    /**
+     * Gets the values of an int, string or date column
+     * @param column the column
+     * @return the values (ids for string and date columns), null for double columns
+     */
+    @Override
+    public int[] getIntColumn(int column) {
+        return columnStore.getIntColumn(column);
+    }
+    
+    /**
+     * Gets the values of a double column
+     * @param column the column
+     * @return the values, null for int, string and date columns
+     */
+    @Override
+    public double[] getDoubleColumn(int column) {
+        return columnStore.getDoubleColumn(column);
+    }
+    
+    @Override
+    public boolean isNull(int row, int column) {
+        return columnStore.isNull(row, column);
+    }
+    
+    /**
+     * Finds the columns that are stored as doubles
+     * @return true for every double column
+     */
+    private boolean[] getDoubleColumns() {
+        boolean[] isDouble = new boolean[colNamesType.size()];
+        for (int i = 0 ; i < isDouble.length ; i ++){
+            isDouble[i] = colNamesType.get(i).contains("double");
+        }
+        return isDouble;
     }
 
     public String getInputFile() {
@@ -150,7 +218,7 @@ public class TXTData implements Data{
     
     @Override
     public void setData(double[][] _dataSet) {
-        this.dataSet = _dataSet;
+        this.columnStore = ColumnStore.fromRows(_dataSet, getDoubleColumns());
     }
     
     /**
@@ -161,7 +229,7 @@ public class TXTData implements Data{
     @JsonIgnore
     @Override
     public int getDataLenght() {
-        return dataSet.length;
+        return columnStore.getRows();
     }
     
     /**
@@ -170,9 +238,9 @@ public class TXTData implements Data{
     @Override
     public void print(){
         int i,j;
-        for (i = 0 ; i < dataSet.length ; i ++){
-            for (j = 0 ; j < dataSet[i].length ; j++){
-                System.out.print(dataSet[i][j]+",");
+        for (i = 0 ; i < columnStore.getRows() ; i ++){
+            for (j = 0 ; j < columnStore.getColumns() ; j++){
+                System.out.print(columnStore.getValue(i, j)+",");
             }
             System.out.println();
         }
@@ -212,173 +280,196 @@ public class TXTData implements Data{
     }
     
     /**
-     * Loads dataset from file to memory
+     * Loads dataset from file to memory. Large files are split in chunks on
+     * line boundaries that are loaded in parallel
      */
     @Override
     public String save(boolean[] checkColumns) {
         
-        FileInputStream fstream = null;
-        DataInputStream in = null;
-        BufferedReader br = null;
-        String strLine = null;
-        String []temp = null;
-        String []colNames = null;
         ArrayList<String> columns = new ArrayList<String>();
-        int counter = 0;
-        int stringCount = 0;
-        boolean FLAG = true;
-        int counter1 = 0 ;
+        long dataStart = 0;
+        long fileSize = 0;
+        ExecutorService pool = null;
         
         try {
-            fstream = new FileInputStream(inputFile);
-            in = new DataInputStream(fstream);
-            br = new BufferedReader(new InputStreamReader(in));
-            
-            while ((strLine = br.readLine()) != null){
-                
-                //do not read the fist line
-                if (FLAG == true){
-                    temp = strLine.split(delimeter,-1);
-                    for ( int i = 0 ; i < temp.length ; i ++){
-                        if (checkColumns[i] == true){
-                            columns.add(temp[i]);
-                        }
-                    }
-                    colNames = new String[columns.size()];
-                    colNames = columns.toArray(new String[0]);
-                    this.setColumnNames(colNames);
-                    FLAG = false;
-                    dataSet = new double[sizeOfRows][columnNames.length];
+            try (DelimitedFileReader reader = new DelimitedFileReader(inputFile, delimeter)) {
+                //the fist line holds the column names
+                if (!reader.nextLine()){
+                    return null;
                 }
-                else{
-                    
-                    temp = strLine.split(delimeter,-1);
-                    counter1 = 0;
-                    for (int i = 0; i < temp.length ; i ++ ){
-                        if (checkColumns[i] == true){
-                        
-                            if ( temp[i].equals("")){
-                            }
-
-                            if ( colNamesType.get(counter1).contains("int") ){
-                                if ( !temp[i].equals("")){
-                                    try {
-                                        dataSet[counter][counter1] = Integer.parseInt(temp[i]);
-                                    } catch (java.lang.NumberFormatException exc) {
-                                        //ErrorWindow.showErrorWindow("Column : " + colNames[i] + " is chosen as integer and you have double values");
-                                        System.out.println("Column : " + colNames[i] + " is chosen as integer and you have double values");
-                                        return null;
-                                    }   
-                                }
-                                else{
-                                    dataSet[counter][counter1] = 2147483646;
-                                }
-                            }
-                            else if (colNamesType.get(counter1).contains("double")){
-                                if ( !temp[i].equals("")){
-                                    dataSet[counter][counter1] = Double.parseDouble(temp[i]);
-                                }
-                                else{
-                                    dataSet[counter][counter1] = Double.NaN;
-                                }
-
-                            }
-                            else if (colNamesType.get(counter1).contains("date")){
-                                DictionaryString tempDict = dictionary.get(counter1);
-                                String var = null;
-
-                                if ( !temp[i].equals("")){
-                                    var = temp[i];
-                                    var = this.timestampToDate(var);
-                                }
-                                else {
-                                    var = "NaN";
-                                }
-
-                                
-                                //transform timestamp to date
-                                //var = this.timestampToDate(var);
-                                
-                                if (var != null) {
-                                //if string is not present in the dictionary
-                                    if (tempDict.containsString(var) == false){
-                                        tempDict.putIdToString(stringCount, var);
-                                        tempDict.putStringToId(var,stringCount);
-                                        dictionary.put(counter1, tempDict);
-                                        dataSet[counter][counter1] = stringCount;
-                                        stringCount++;
-                                    }
-                                    else{
-                                        //if string is present in the dictionary, get its id
-                                        int stringId = tempDict.getStringToId(var);
-                                        dataSet[counter][counter1] = stringId;
-                                    }
-                                }
-                            }
-                            else{
-                                DictionaryString tempDict = dictionary.get(counter1);
-                                String var = null;
-
-                                if ( !temp[i].equals("")){
-                                    var = temp[i];
-                                }
-                                else {
-                                    var = "NaN";
-                                }
-
-                                //if string is not present in the dictionary
-                                if (tempDict.containsString(var) == false){
-                                    tempDict.putIdToString(stringCount, var);
-                                    tempDict.putStringToId(var,stringCount);
-                                    dictionary.put(counter1, tempDict);
-                                    dataSet[counter][counter1] = stringCount;
-                                    stringCount++;
-                                }
-                                else{
-                                    //if string is present in the dictionary, get its id
-                                    int stringId = tempDict.getStringToId(var);
-                                    dataSet[counter][counter1] = stringId;
-                                }
-                            }
-                            counter1++;
-                        }
+                for ( int i = 0 ; i < reader.getFieldsNum() ; i ++){
+                    if (checkColumns[i] == true){
+                        columns.add(reader.getString(i));
                     }
-                    counter++;
                 }
+                this.setColumnNames(columns.toArray(new String[0]));
+                dataStart = reader.getOffset();
+                fileSize = reader.getFileSize();
             }
             
-            in.close();
+            String[] types = getColumnTypes();
             
-            System.out.println("size row = " + dataSet.length + "\tsize column = " + dataSet[0].length);
+            //split the file in chunks
+            int chunksNum = (int)Math.min(Runtime.getRuntime().availableProcessors(), (fileSize - dataStart) / chunkSize);
+            chunksNum = Math.max(1, chunksNum);
+            TXTDataChunk[] chunks = new TXTDataChunk[chunksNum];
+            for ( int i = 0 ; i < chunksNum ; i ++){
+                long start = dataStart + (fileSize - dataStart) * i / chunksNum;
+                long end = dataStart + (fileSize - dataStart) * (i + 1) / chunksNum;
+                chunks[i] = new TXTDataChunk(this, inputFile, delimeter, start, end, checkColumns, types, columnNames);
+            }
             
-            /*for ( int  i = 0; i < dataSet.length ; i ++){
-                for ( int j=0; j < dataSet[i].length ; j ++ ){
-                    System.out.print("data = " + dataSet[i][j]);
+            ColumnStore[] stores = new ColumnStore[chunksNum];
+            if (chunksNum == 1){
+                stores[0] = chunks[0].call();
+            }
+            else{
+                pool = Executors.newFixedThreadPool(chunksNum);
+                List<Future<ColumnStore>> futures = new ArrayList<>();
+                for (TXTDataChunk chunk : chunks){
+                    futures.add(pool.submit(chunk));
+                }
+                for ( int i = 0 ; i < chunksNum ; i ++){
+                    stores[i] = futures.get(i).get();
                 }
-                System.out.println();
-            }*/
+            }
+            
+            for ( int i = 0 ; i < chunksNum ; i ++){
+                if (stores[i] == null){
+                    System.out.println(chunks[i].getErrorMessage());
+                    return null;
+                }
+            }
             
+            //give dictionary ids to the strings in order of first appearance
+            int stringCount = 0;
+            List<Future<?>> remaps = new ArrayList<>();
+            for (final TXTDataChunk chunk : chunks){
+                final int[] ids = new int[chunk.getStringsNum()];
+                for ( int i = 0 ; i < ids.length ; i ++){
+                    DictionaryString tempDict = dictionary.get(chunk.getStringColumn(i));
+                    String var = chunk.getString(i);
+                    
+                    //if string is not present in the dictionary
+                    int stringId = tempDict.getId(var);
+                    if (stringId < 0){
+                        tempDict.putIdToString(stringCount, var);
+                        tempDict.putStringToId(var,stringCount);
+                        ids[i] = stringCount;
+                        stringCount++;
+                    }
+                    else{
+                        ids[i] = stringId;
+                    }
+                }
+                
+                if (pool == null){
+                    chunk.remap(ids);
+                }
+                else{
+                    remaps.add(pool.submit(() -> chunk.remap(ids)));
+                }
+            }
+            for (Future<?> remap : remaps){
+                remap.get();
+            }
+            
+            //put the chunks together
+            if (chunksNum == 1){
+                columnStore = stores[0];
+            }
+            else{
+                int rows = 0;
+                for (ColumnStore store : stores){
+                    rows += store.getRows();
+                }
+                columnStore = new ColumnStore(rows, getDoubleColumns());
+                rows = 0;
+                for ( int i = 0 ; i < chunksNum ; i ++){
+                    columnStore.copyRows(stores[i], rows);
+                    rows += stores[i].getRows();
+                    stores[i] = null;
+                }
+            }
+            sizeOfRows = columnStore.getRows();
+            
+            System.out.println("size row = " + columnStore.getRows() + "\tsize column = " + columnStore.getColumns());
             
         }catch (Exception e){//Catch exception if any
             System.err.println("Error: " + e.getMessage());
             return null;
         }
+        finally {
+            if (pool != null){
+                pool.shutdown();
+            }
+        }
         return "OK";
     }
     
     
     /**
-     * Reads dataset from file (preprocessing and load)
+     * Reads dataset from file
      */
     @Override
     public String readDataset(String[] columnTypes, boolean[] checkColumns) {
         SaveClmnsAndTypeOfVar(columnTypes,checkColumns);
-        preprocessing();
+        
+        File snapshot = new File(inputFile + ".snapshot");
+        if (useSnapshot && loadSnapshot(snapshot, checkColumns)){
+            return "OK";
+        }
+        
         String result = save(checkColumns);
+        if (result != null && useSnapshot){
+            try {
+                new DatasetSnapshot(columnNames, getColumnTypes(), checkColumns, delimeter, columnStore, dictionary).write(snapshot, new File(inputFile));
+            } catch (IOException ex) {
+                Logger.getLogger(TXTData.class.getName()).log(Level.SEVERE, null, ex);
+                snapshot.delete();
+            }
+        }
         return result;
         
     }
     
+    /**
+     * Loads the dataset from a snapshot written by an earlier load of the same
+     * file with the same delimiter, columns and types
+     * @param snapshot the snapshot file
+     * @param checkColumns true for the columns of the file that are loaded
+     * @return true if the snapshot was loaded
+     */
+    private boolean loadSnapshot(File snapshot, boolean[] checkColumns) {
+        DatasetSnapshot s = null;
+        try {
+            s = DatasetSnapshot.read(snapshot, new File(inputFile), delimeter);
+        } catch (IOException ex) {
+            Logger.getLogger(TXTData.class.getName()).log(Level.SEVERE, null, ex);
+            return false;
+        }
+        
+        if (s == null || !Arrays.equals(s.getCheckColumns(), checkColumns) || !Arrays.equals(s.getColumnTypes(), getColumnTypes())){
+            return false;
+        }
+        
+        this.setColumnNames(s.getColumnNames());
+        columnStore = s.getStore();
+        sizeOfRows = columnStore.getRows();
+        for (Map.Entry<Integer, DictionaryString> entry : s.getDictionaries().entrySet()){
+            dictionary.put(entry.getKey(), entry.getValue());
+        }
+        return true;
+    }
+    
+    private String[] getColumnTypes() {
+        String[] types = new String[colNamesType.size()];
+        for (int i = 0 ; i < types.length ; i ++){
+            types[i] = colNamesType.get(i);
+        }
+        return types;
+    }
+    
     /**
      * Gets dictionary for the specified column
      * @param column the number of the column
@@ -443,15 +534,15 @@ public class TXTData implements Data{
     @Override
     public void replaceColumnDictionary(Integer column, DictionaryString dict) {
         DictionaryString curDict = this.dictionary.get(column);
+        int[] values = columnStore.getIntColumn(column);
         
-        for (double[] row : dataSet) {
+        for (int i = 0 ; i < values.length ; i ++) {
             
             //retrieve actual value from dictionary
-            String columnValue = curDict.getIdToString((int)row[column]);
+            String columnValue = curDict.getIdToString(values[i]);
             
             //replace with value from new dictionary
-            row[column] = dict.getStringToId(columnValue);
-            
+            values[i] = dict.getStringToId(columnValue);
         }
         
         //set given dictionary as the new one
@@ -653,7 +744,7 @@ public class TXTData implements Data{
                 
                 //save column names
                 if (FLAG == true){
-                    colNames = strLine.split(delimeter,-1);
+                    colNames = strLine.split(Pattern.quote(delimeter),-1);
                     for ( int i = 0 ; i < colNames.length ; i ++){
                         if ( checkColumns[i] == true){
                             colNamesType.put(counter,null);
@@ -662,6 +753,7 @@ public class TXTData implements Data{
                         }
                     }
                     FLAG = false;
+                    break;
                 }
             }
             
@@ -716,7 +808,7 @@ public class TXTData implements Data{
             while ((strLine = br.readLine()) != null)   {
                 //escape first row
                 if (FLAG == true){
-                    temp = strLine.split(delimeter,-1);
+                    temp = strLine.split(Pattern.quote(delimeter),-1);
                     columnNames = new String[temp.length];
                     smallDataSet = new String[6][temp.length];
                     for ( int i = 0 ; i < temp.length ; i ++){
@@ -728,7 +820,7 @@ public class TXTData implements Data{
                 }
                 //save column types
                 else{
-                    temp = strLine.split(delimeter,-1);
+                    temp = strLine.split(Pattern.quote(delimeter),-1);
                     //System.out.println("strLine = " + strLine);
                     /*for ( int i = 0 ; i < temp.length ; i ++){
                         System.out.println("tempp =" + temp[i]);
@@ -875,27 +967,26 @@ public class TXTData implements Data{
         for ( int i = start ; i < max ; i ++){
             linkedHashTemp = new LinkedHashMap<>();
             for (int j = 0 ; j < colNamesType.size() ; j ++){
-                //System.out.println("data = " + dataSet[i][j]);
+                double value = columnStore.getValue(i, j);
                 if (colNamesType.get(j).equals("double")){
-                    if (Double.isNaN(dataSet[i][j])){
+                    if (columnStore.isNull(i, j)){
                         linkedHashTemp.put(columnNames[j],"");
                     }
                     else{
-                        Object a = dataSet[i][j];
-                        linkedHashTemp.put(columnNames[j], dataSet[i][j]);
+                        linkedHashTemp.put(columnNames[j], value);
                     }
                 }
                 else if (colNamesType.get(j).equals("int")){
-                    if (dataSet[i][j] == 2147483646.0){
+                    if (columnStore.isNull(i, j)){
                         linkedHashTemp.put(columnNames[j],"");
                     }
                     else{
-                        linkedHashTemp.put(columnNames[j], Integer.toString((int)dataSet[i][j])+"");
+                        linkedHashTemp.put(columnNames[j], Integer.toString((int)value)+"");
                     }
                 }
                 else{
                     DictionaryString dict = dictionary.get(j);
-                    String str = dict.getIdToString((int)dataSet[i][j]);
+                    String str = dict.getIdToString((int)value);
 
                     if (str.equals("NaN")){
                         linkedHashTemp.put(columnNames[j],"");
@@ -991,6 +1082,14 @@ public class TXTData implements Data{
         this.columnNames = columnNames;
     }
 
+    /**
+     * Sets whether readDataset reads and writes the snapshot of the file
+     * @param useSnapshot false to always parse the file and write no snapshot
+     */
+    public void setUseSnapshot(boolean useSnapshot) {
+        this.useSnapshot = useSnapshot;
+    }
+
     
     
     public int getRecordsTotal() {
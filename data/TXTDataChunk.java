@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena"
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ */
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Loads the lines of a byte range of a delimited file. Strings get ids from
+ * a dictionary local to the chunk, numbered in order of first appearance
+ * over all columns, which are replaced by the ids of the dataset's
+ * dictionaries once all chunks are loaded.
+ */
+public class TXTDataChunk implements Callable<ColumnStore> {
+    private TXTData data = null;
+    private String file = null;
+    private String delimiter = null;
+    private long start = 0;
+    private long end = 0;
+    private boolean[] checkColumns = null;
+    private String[] columnTypes = null;
+    private String[] columnNames = null;
+
+    private ColumnStore store = null;
+    private List<Map<String, Integer>> localIds = null;
+    private List<String> strings = new ArrayList<>();
+    private int[] stringColumns = new int[16];
+    private Map<String, String> dates = new HashMap<>();
+    private String errorMessage = null;
+
+    /**
+     * Creates the loader of a chunk
+     * @param data the dataset
+     * @param file the path of the file
+     * @param delimiter the delimiter of the fields
+     * @param start the offset where the chunk starts
+     * @param end the offset where the chunk ends
+     * @param checkColumns true for the columns of the file that are loaded
+     * @param columnTypes the type of every loaded column
+     * @param columnNames the name of every loaded column
+     */
+    public TXTDataChunk(TXTData data, String file, String delimiter, long start, long end,
+            boolean[] checkColumns, String[] columnTypes, String[] columnNames){
+        this.data = data;
+        this.file = file;
+        this.delimiter = delimiter;
+        this.start = start;
+        this.end = end;
+        this.checkColumns = checkColumns;
+        this.columnTypes = columnTypes;
+        this.columnNames = columnNames;
+
+        localIds = new ArrayList<>(columnTypes.length);
+        for(int i=0; i<columnTypes.length; i++){
+            localIds.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Loads the chunk
+     * @return the values of the chunk, null if a value does not match the type
+     * of its column
+     * @throws Exception
+     */
+    @Override
+    public ColumnStore call() throws Exception{
+        boolean[] isDouble = new boolean[columnTypes.length];
+        for(int i=0; i<columnTypes.length; i++){
+            isDouble[i] = columnTypes[i].contains("double");
+        }
+        store = new ColumnStore(isDouble);
+
+        try (DelimitedFileReader reader = new DelimitedFileReader(file, delimiter, start, end)) {
+            while(reader.nextLine()){
+                int row = store.addRow();
+                int column = 0;
+                for(int i=0; i<reader.getFieldsNum(); i++){
+                    if(!checkColumns[i]){
+                        continue;
+                    }
+
+                    if(columnTypes[column].contains("int")){
+                        if(!reader.isEmpty(i)){
+                            try {
+                                store.setInt(row, column, reader.parseInt(i));
+                            } catch (NumberFormatException exc) {
+                                errorMessage = "Column : " + columnNames[column] + " is chosen as integer and you have double values";
+                                return null;
+                            }
+                        }
+                        else{
+                            store.setNull(row, column);
+                        }
+                    }
+                    else if(columnTypes[column].contains("double")){
+                        if(!reader.isEmpty(i)){
+                            store.setDouble(row, column, reader.parseDouble(i));
+                        }
+                        else{
+                            store.setNull(row, column);
+                        }
+                    }
+                    else{
+                        String var = null;
+                        if(reader.isEmpty(i)){
+                            var = "NaN";
+                        }
+                        else if(columnTypes[column].contains("date")){
+                            var = toDate(reader.getString(i));
+                        }
+                        else{
+                            var = reader.getString(i);
+                        }
+
+                        if(var != null){
+                            store.setInt(row, column, getLocalId(column, var));
+                        }
+                        else{
+                            store.setInt(row, column, -1);
+                        }
+                    }
+                    column++;
+                }
+
+                //short lines leave the remaining columns at 0
+                for(; column<columnTypes.length; column++){
+                    if(!isDouble[column] && !columnTypes[column].contains("int")){
+                        store.setInt(row, column, -1);
+                    }
+                }
+            }
+        }
+
+        store.trim();
+        return store;
+    }
+
+    /**
+     * Transforms a timestamp to a date, once for every distinct timestamp
+     * @param timestamp the timestamp
+     * @return the date, null if the timestamp cannot be parsed
+     */
+    private String toDate(String timestamp){
+        if(dates.containsKey(timestamp)){
+            return dates.get(timestamp);
+        }
+        String date = data.timestampToDate(timestamp);
+        dates.put(timestamp, date);
+        return date;
+    }
+
+    private int getLocalId(int column, String var){
+        Integer id = localIds.get(column).get(var);
+        if(id == null){
+            id = strings.size();
+            localIds.get(column).put(var, id);
+            strings.add(var);
+            if(id == stringColumns.length){
+                stringColumns = Arrays.copyOf(stringColumns, id << 1);
+            }
+            stringColumns[id] = column;
+        }
+        return id;
+    }
+
+    /**
+     * Replaces the local ids of the chunk with the ids of the dataset. Values
+     * that could not be read as dates, or are missing, are set to 0
+     * @param ids the id in the dataset of every local id
+     */
+    public void remap(int[] ids){
+        for(int column=0; column<columnTypes.length; column++){
+            if(store.isDouble(column) || columnTypes[column].contains("int")){
+                continue;
+            }
+            int[] values = store.getIntColumn(column);
+            for(int row=0; row<store.getRows(); row++){
+                values[row] = (values[row] < 0) ? 0 : ids[values[row]];
+            }
+        }
+    }
+
+    /**
+     * Gets the number of local ids, in order of first appearance
+     * @return the number of strings of the chunk
+     */
+    public int getStringsNum(){
+        return strings.size();
+    }
+
+    public String getString(int localId){
+        return strings.get(localId);
+    }
+
+    public int getStringColumn(int localId){
+        return stringColumns[localId];
+    }
+
+    public ColumnStore getStore(){
+        return store;
+    }
+
+    public String getErrorMessage(){
+        return errorMessage;
+    }
+}
@@ -18,23 +18,43 @@
  */
 package dictionary;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
 /**
- * A dictionary for a string attribute
+ * A dictionary for a string attribute. Strings are kept in an array indexed
+ * by id minus the smallest id, and ids in an open addressing map keyed by
+ * string, so that lookups do not box ids. Ids are shared by all the columns
+ * of a dataset, so when the ids of a dictionary are spread too thin for the
+ * array, strings are moved to an open addressing map keyed by id instead.
  * @author serafeim
  */
 public class DictionaryString {
-    public Map<Integer, String> idToString = null;
-    private Map<String,Integer> stringToId = null;
+    private static final float loadFactor = 0.5f;
+    //largest number of array slots per string before moving to the map by id
+    private static final int maxSlotsPerString = 4;
+    
+    //dense form, idToString[id - minId]
+    private String[] idToString = null;
+    private int minId = 0;
+    //sparse form, used instead of idToString once it is not null
+    private int[] sparseIds = null;
+    private String[] sparseStrings = null;
+    private int idsNum = 0;
+    private int maxId = -1;
+    
+    private String[] keys = null;
+    private int[] ids = null;
+    private int size = 0;
     
     
     public DictionaryString(){
-        idToString = new HashMap<Integer,String>();
-        stringToId = new HashMap<String,Integer>();
+        idToString = new String[16];
+        keys = new String[16];
+        ids = new int[16];
     }
     
     /**
@@ -42,17 +62,111 @@ public class DictionaryString {
      * @param key key
      * @param value string value
      */
-    public void putIdToString(Integer key, String value){
-        idToString.put(key, value);
+    public void putIdToString(int key, String value){
+        if(sparseStrings == null){
+            if(idsNum == 0){
+                minId = key;
+            }
+            int from = Math.min(minId, key);
+            int to = Math.max(minId + idToString.length, key + 1);
+            if((long)to - from > (long)maxSlotsPerString * (idsNum + 1) + 16){
+                toSparse();
+            }
+            else{
+                if(from < minId || to > minId + idToString.length){
+                    int capacity = idToString.length;
+                    while(capacity < to - from){
+                        capacity <<= 1;
+                    }
+                    String[] newIdToString = new String[capacity];
+                    System.arraycopy(idToString, 0, newIdToString, minId - from, idToString.length);
+                    idToString = newIdToString;
+                    minId = from;
+                }
+                if(idToString[key - minId] == null){
+                    idsNum++;
+                }
+                idToString[key - minId] = value;
+            }
+        }
+        if(sparseStrings != null){
+            if(idsNum >= sparseIds.length * loadFactor){
+                rehashIds(sparseIds.length << 1);
+            }
+            int slot = findIdSlot(key);
+            if(sparseStrings[slot] == null){
+                sparseIds[slot] = key;
+                idsNum++;
+            }
+            sparseStrings[slot] = value;
+        }
+        if(key > maxId){
+            maxId = key;
+        }
     }
     
     /**
      * Gets string for the specified key
      * @param key key
-     * @return string associated with key
+     * @return string associated with key, null if there is none
+     */
+    public String getIdToString(int key){
+        if(sparseStrings != null){
+            return sparseStrings[findIdSlot(key)];
+        }
+        if(key < minId || key - minId >= idToString.length){
+            return null;
+        }
+        return idToString[key - minId];
+    }
+    
+    /**
+     * Moves the strings from the array to the map by id
      */
-    public String getIdToString(Integer key){
-        return idToString.get(key);
+    private void toSparse(){
+        int capacity = 16;
+        while(capacity * loadFactor <= idsNum + 1){
+            capacity <<= 1;
+        }
+        sparseIds = new int[capacity];
+        sparseStrings = new String[capacity];
+        for(int i=0; i<idToString.length; i++){
+            if(idToString[i] != null){
+                int slot = findIdSlot(minId + i);
+                sparseIds[slot] = minId + i;
+                sparseStrings[slot] = idToString[i];
+            }
+        }
+        idToString = null;
+    }
+    
+    /**
+     * Finds the slot of an id in the map by id, or the empty slot where it
+     * would be put
+     * @param id the id
+     * @return the slot
+     */
+    private int findIdSlot(int id){
+        int mask = sparseIds.length - 1;
+        int slot = hash(id) & mask;
+        while(sparseStrings[slot] != null && sparseIds[slot] != id){
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private void rehashIds(int capacity){
+        int[] oldIds = sparseIds;
+        String[] oldStrings = sparseStrings;
+        sparseIds = new int[capacity];
+        sparseStrings = new String[capacity];
+        for(int i=0; i<oldIds.length; i++){
+            if(oldStrings[i] != null){
+                int slot = findIdSlot(oldIds[i]);
+                sparseIds[slot] = oldIds[i];
+                sparseStrings[slot] = oldStrings[i];
+            }
+        }
     }
     
     /**
@@ -60,19 +174,81 @@ public class DictionaryString {
      * @param key key 
      * @param value string value
      */
-    public void putStringToId(String key, Integer value){
-        stringToId.put(key, value);
+    public void putStringToId(String key, int value){
+        if(size >= keys.length * loadFactor){
+            rehash(keys.length << 1);
+        }
+        
+        int slot = findSlot(key);
+        if(keys[slot] == null){
+            keys[slot] = key;
+            size++;
+        }
+        ids[slot] = value;
     }
     
     /**
      * Gets id for the specified string
      * @param key id
-     * @return string value
+     * @return string value, null if there is none
      */
     public Integer getStringToId(String key){
-        return stringToId.get(key);
+        int slot = findSlot(key);
+        if(keys[slot] == null){
+            return null;
+        }
+        return ids[slot];
+    }
+    
+    /**
+     * Gets id for the specified string, without boxing
+     * @param key the string value
+     * @return the id, -1 if the string is not present
+     */
+    public int getId(String key){
+        int slot = findSlot(key);
+        if(keys[slot] == null){
+            return -1;
+        }
+        return ids[slot];
+    }
+    
+    /**
+     * Finds the slot of a string, or the empty slot where it would be put
+     * @param key the string value
+     * @return the slot
+     */
+    private int findSlot(String key){
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while(keys[slot] != null && !keys[slot].equals(key)){
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private static int hash(String key){
+        return hash(key.hashCode());
     }
     
+    private static int hash(int key){
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    private void rehash(int capacity){
+        String[] oldKeys = keys;
+        int[] oldIds = ids;
+        keys = new String[capacity];
+        ids = new int[capacity];
+        for(int i=0; i<oldKeys.length; i++){
+            if(oldKeys[i] != null){
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                ids[slot] = oldIds[i];
+            }
+        }
+    }
     
     /**
      * if string is present in the dictionary
@@ -80,7 +256,7 @@ public class DictionaryString {
      * @return true if present, false otherwise
      */
     public boolean containsString(String key){
-        return stringToId.containsKey(key);
+        return keys[findSlot(key)] != null;
     }
     
     /**
@@ -91,9 +267,8 @@ public class DictionaryString {
      */
     public String isSubsetOf(DictionaryString dict2){
         
-        Set<String> dict2Keyset = dict2.getKeyset();
-        for(String s : this.stringToId.keySet()){
-            if(!dict2Keyset.contains(s)){
+        for(String s : this.keys){
+            if(s != null && !dict2.containsString(s)){
                 return s;
             }
         }
@@ -103,30 +278,147 @@ public class DictionaryString {
     
     /**
      * Get the set of strings in the dictionary
-     * @return the set of dictionary's strings 
+     * @return a copy of the set of dictionary's strings 
      */
     public Set<String> getKeyset(){
-        return this.stringToId.keySet();
+        Set<String> keyset = new HashSet<>();
+        for(String s : this.keys){
+            if(s != null){
+                keyset.add(s);
+            }
+        }
+        return keyset;
     }
     
     public void remove(int id){
-        String key = this.idToString.get(id);
+        String key = getIdToString(id);
         if(key != null){
-            this.idToString.remove(id);
-            this.stringToId.remove(key);
+            removeId(id);
+            
+            //remove the string, moving back the following strings of its probe sequence
+            int mask = keys.length - 1;
+            int slot = findSlot(key);
+            keys[slot] = null;
+            size--;
+            int next = (slot + 1) & mask;
+            while(keys[next] != null){
+                String k = keys[next];
+                int v = ids[next];
+                keys[next] = null;
+                int newSlot = findSlot(k);
+                keys[newSlot] = k;
+                ids[newSlot] = v;
+                next = (next + 1) & mask;
+            }
+        }
+    }
+    
+    /**
+     * Removes the string of an id, which has to be present
+     * @param id the id
+     */
+    private void removeId(int id){
+        idsNum--;
+        if(sparseStrings == null){
+            idToString[id - minId] = null;
+            while(maxId >= minId && idToString[maxId - minId] == null){
+                maxId--;
+            }
+            if(maxId < minId){
+                maxId = -1;
+            }
+            return;
+        }
+        
+        //remove the id, moving back the following ids of its probe sequence
+        int mask = sparseIds.length - 1;
+        int slot = findIdSlot(id);
+        sparseStrings[slot] = null;
+        int next = (slot + 1) & mask;
+        while(sparseStrings[next] != null){
+            int k = sparseIds[next];
+            String v = sparseStrings[next];
+            sparseStrings[next] = null;
+            int newSlot = findIdSlot(k);
+            sparseIds[newSlot] = k;
+            sparseStrings[newSlot] = v;
+            next = (next + 1) & mask;
+        }
+        if(id == maxId){
+            maxId = -1;
+            for(int i=0; i<sparseIds.length; i++){
+                if(sparseStrings[i] != null && sparseIds[i] > maxId){
+                    maxId = sparseIds[i];
+                }
+            }
         }
     }
     
+    /**
+     * Gets the largest id of the dictionary
+     * @return the largest id, -1 if the dictionary is empty
+     */
     public int getMaxUsedId(){
-        return Collections.max(this.idToString.keySet());
+        return maxId;
+    }
+    
+    /**
+     * Gets the number of strings in the dictionary
+     * @return the number of strings
+     */
+    public int size(){
+        return size;
     }
 
+    /**
+     * Gets the ids that have a string
+     * @return the ids, in ascending order
+     */
+    public int[] getIds(){
+        int[] result = new int[idsNum];
+        int pos = 0;
+        if(sparseStrings == null){
+            for(int i=0; i<idToString.length; i++){
+                if(idToString[i] != null){
+                    result[pos++] = minId + i;
+                }
+            }
+        }
+        else{
+            for(int i=0; i<sparseIds.length; i++){
+                if(sparseStrings[i] != null){
+                    result[pos++] = sparseIds[i];
+                }
+            }
+            Arrays.sort(result);
+        }
+        return result;
+    }
+
+    /**
+     * Gets the strings of the dictionary by id
+     * @return a copy of the id to string mapping, in order of id
+     */
     public Map<Integer, String> getIdToString() {
-        return idToString;
+        Map<Integer, String> map = new LinkedHashMap<>();
+        for(int id : getIds()){
+            map.put(id, getIdToString(id));
+        }
+        return map;
     }
 
+    /**
+     * Gets the ids of the dictionary by string
+     * @return a copy of the string to id mapping
+     */
     public Map<String, Integer> getStringToId() {
-        return stringToId;
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for(int i=0; i<keys.length; i++){
+            if(keys[i] != null){
+                map.put(keys[i], ids[i]);
+            }
+        }
+        return map;
     }
     
     
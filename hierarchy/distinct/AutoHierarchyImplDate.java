@@ -54,14 +54,13 @@ public class AutoHierarchyImplDate extends HierarchyImplString {
         List<String> childrenList = null;
         
         int column = dataset.getColumnByName(attribute);
-        double[][] data = dataset.getDataSet();
         DictionaryString dict = dataset.getDictionary(column);
 
         Set<String> itemsSet = new HashSet<>();
 
         //get distinct values from dataset
-        for (double[] rowData : data){
-            itemsSet.add(dict.getIdToString((int)rowData[column]));
+        for (int row = 0 ; row < dataset.getDataLenght() ; row++){
+            itemsSet.add(dict.getIdToString((int)dataset.getValue(row, column)));
         }
         
              
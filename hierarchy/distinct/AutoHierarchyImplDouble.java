@@ -83,8 +83,8 @@ public class AutoHierarchyImplDouble extends HierarchyImplDouble{
         
 //        long start1 = System.currentTimeMillis();
 
-        for (double[] columnData : dataset.getDataSet()){
-          itemsSet.add(columnData[column]);
+        for (int row = 0 ; row < dataset.getDataLenght() ; row++){
+          itemsSet.add(dataset.getValue(row, column));
         }
        
         height = computeHeight(fanout, itemsSet.size());
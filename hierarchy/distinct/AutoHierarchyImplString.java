@@ -59,22 +59,21 @@ public class AutoHierarchyImplString extends HierarchyImplString {
     @Override
     public void autogenerate() {
         int column = dataset.getColumnByName(attribute);
-        double[][] data = dataset.getDataSet();
         DictionaryString dict = dataset.getDictionary(column);
 
         Set<String> itemsSet = new HashSet<>();
 
         //get distinct values from dataset
         if(dataset instanceof SETData){
-            for (double[] rowData : data){
+            for (double[] rowData : dataset.getDataSet()){
                 for(double d : rowData){
                     itemsSet.add(dict.getIdToString((int)d));
                 }
             }
         }
         else{
-            for (double[] rowData : data){
-                itemsSet.add(dict.getIdToString((int)rowData[column]));
+            for (int row = 0 ; row < dataset.getDataLenght() ; row++){
+                itemsSet.add(dict.getIdToString((int)dataset.getValue(row, column)));
             }
         }
              
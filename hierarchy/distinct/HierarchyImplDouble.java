@@ -914,7 +914,6 @@ public class HierarchyImplDouble implements Hierarchy<Double> {
         
         //find index of column
         Integer c;
-        double[][] data = dataset.getDataSet();
         for(c  = 0 ; c < dataset.getColNamesPosition().keySet().size() ; c++){
             if(dataset.getColNamesPosition().get(c).equals(column)){
                 break;
@@ -923,11 +922,12 @@ public class HierarchyImplDouble implements Hierarchy<Double> {
         
         //System.out.println(c);
        
-        for (double[] columnData : data) {
-            NodeStats s = this.stats.get(columnData[c]);
+        for (int row = 0 ; row < dataset.getDataLenght() ; row++) {
+            double value = dataset.getValue(row, c);
+            NodeStats s = this.stats.get(value);
             
             if(s != null){      //find weights of leaf level
-                List<Double> cList = this.children.get(columnData[c]);
+                List<Double> cList = this.children.get(value);
                 if(cList == null || cList.isEmpty()){
 
                     //System.out.println(columnData[c]);
@@ -72,6 +72,8 @@ public class HierarchyImplString implements Hierarchy<String> {
     Map<Integer, List<Integer>> allParentIds = null;
     
     Map<Integer, Integer> parentsInteger = null;
+    //int-indexed copy of the hierarchy, built with the dictionary and dropped on changes
+    HierarchyIndex index = null;
 
     
     
@@ -334,6 +336,7 @@ public class HierarchyImplString implements Hierarchy<String> {
     
     @Override
     public void add(String newObj, String parent) {
+        this.index = null;
         System.out.println("add () newItem: "  + newObj.toString() + " parentItem: " + parent.toString());
         
         
@@ -434,6 +437,7 @@ public class HierarchyImplString implements Hierarchy<String> {
     @Override
     public Map<Integer, Set<String>> remove(String item)
     {
+        this.index = null;
         Map<Integer, Set<String>> nodesMap = BFS(item,null);
         for(Integer i = nodesMap.keySet().size() ; i > 0 ; i--)
         {
@@ -474,6 +478,7 @@ public class HierarchyImplString implements Hierarchy<String> {
     
     @Override
     public void clear() {
+        this.index = null;
         //System.out.println("model clear");
         children = new HashMap<>();
         stats = new HashMap<>();
@@ -495,6 +500,7 @@ public class HierarchyImplString implements Hierarchy<String> {
     
     @Override
     public void edit(String oldValue, String newValue){
+        this.index = null;
         //update children map
         String parent = null;
         ArrayList parentsList = null;
@@ -686,6 +692,7 @@ public class HierarchyImplString implements Hierarchy<String> {
     
     @Override
     public Map<Integer,Set<String>> dragAndDrop(String firstObj, String lastObj) {
+        this.index = null;
         String parentFirstObj ;
         ArrayList childs1 = null;
         ArrayList childs2 = null;
@@ -933,7 +940,6 @@ public class HierarchyImplString implements Hierarchy<String> {
         
         //find index of column
         Integer c;
-        double[][] data = dataset.getDataSet();
         for(c  = 0 ; c < dataset.getColNamesPosition().keySet().size() ; c++){
             if(dataset.getColNamesPosition().get(c).equals(column)){
                 break;
@@ -948,7 +954,7 @@ public class HierarchyImplString implements Hierarchy<String> {
         //System.out.println(c);
         
         if(dataset instanceof SETData){
-            for (double[] rowData : data) {
+            for (double[] rowData : dataset.getDataSet()) {
                 for(double d : rowData){
                     String fromDict = dict.getIdToString((int)d);
                     NodeStats s = this.stats.get(fromDict);
@@ -965,8 +971,8 @@ public class HierarchyImplString implements Hierarchy<String> {
             }
         }
         else{
-            for (double[] columnData : data) {
-                String fromDict = dict.getIdToString((int)columnData[c]);
+            for (int row = 0 ; row < dataset.getDataLenght() ; row++) {
+                String fromDict = dict.getIdToString((int)dataset.getValue(row, c));
                 NodeStats s = this.stats.get(fromDict);
                 
                 if(s != null){      //find weights of leaf level
@@ -994,6 +1000,15 @@ public class HierarchyImplString implements Hierarchy<String> {
                 
             }
         }
+        
+        if(this.index != null){
+            for(Map.Entry<String, NodeStats> entry : this.stats.entrySet()){
+                int id = this.dict.getId(entry.getKey());
+                if(this.index.contains(id)){
+                    this.index.setWeight(id, entry.getValue().weight);
+                }
+            }
+        }
     }
     
     @Override
@@ -1001,15 +1016,14 @@ public class HierarchyImplString implements Hierarchy<String> {
         
         DictionaryString colDict = dataset.getDictionary(column);
         
-        double[][] data = dataset.getDataSet();
         int dataLength = dataset.getDataLenght();
         
         //check if every value in the column is present in this hierarchy
         for(int i=0; i<dataLength; i++){
             
             //if not, return value missing
-            if(!this.stats.containsKey(colDict.getIdToString((int)data[i][column]))){
-                return colDict.getIdToString((int)data[i][column]);
+            if(!this.stats.containsKey(colDict.getIdToString((int)dataset.getValue(i, column)))){
+                return colDict.getIdToString((int)dataset.getValue(i, column));
             }
         }
         
@@ -1028,7 +1042,14 @@ public class HierarchyImplString implements Hierarchy<String> {
     
     
     public void incWeight(String node){
-        this.stats.get(node).weight++;
+        NodeStats s = this.stats.get(node);
+        s.weight++;
+        if(this.index != null){
+            int id = this.dict.getId(node);
+            if(this.index.contains(id)){
+                this.index.setWeight(id, s.weight);
+            }
+        }
     }
     
 //    @Override
@@ -1084,13 +1105,16 @@ public class HierarchyImplString implements Hierarchy<String> {
     
     @Override
     public double getParentId(double d) {
+        if(this.index != null && this.index.contains((int)d)){
+            return this.index.getParentId((int)d);
+        }
         String stringValue = this.dict.getIdToString((int)d);
         String parentStringValue = this.parents.get(stringValue);
         if(parentStringValue == null){
             return -1;
         }
         else{
-            return this.dict.getStringToId(parentStringValue);
+            return this.dict.getId(parentStringValue);
         }
     }
     
@@ -1110,11 +1134,19 @@ public class HierarchyImplString implements Hierarchy<String> {
         
         //set column's dictionary the same as hierarchy's
         this.dict = dictionary;
+        
+        //levels are kept in bytes
+        if(this.height <= Byte.MAX_VALUE){
+            this.index = new HierarchyIndex(this.dict, this.stats, this.parents, this.children, this.height);
+        }
     }
 
     @Override
     public Set<Double> getChildrenIds(double d) {
 //        System.out.println(this.stats.keySet().size());
+        if(this.index != null && this.index.contains((int)d)){
+            return this.index.getChildrenSet((int)d);
+        }
         String stringValue = this.dict.getIdToString((int)d);
         List<String> childrenStrings = this.children.get(stringValue);
         Set<Double> chs = null;
@@ -1132,6 +1164,9 @@ public class HierarchyImplString implements Hierarchy<String> {
 
     @Override
     public Integer getLevel(double nodeId) {
+        if(this.index != null && this.index.contains((int)nodeId)){
+            return this.index.getLevel((int)nodeId);
+        }
         String value = this.dict.getIdToString((int)nodeId);
         return (this.height - this.getLevel(value) - 1) ;
     }
@@ -1158,6 +1193,9 @@ public class HierarchyImplString implements Hierarchy<String> {
 
     @Override
     public Integer getWeight(double nodeId) {
+        if(this.index != null && this.index.contains((int)nodeId)){
+            return this.index.getWeight((int)nodeId);
+        }
         String value = this.dict.getIdToString((int)nodeId);
         return getWeight(value);
     }
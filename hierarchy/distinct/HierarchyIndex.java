@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena"
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ */
+package hierarchy.distinct;
+
+import dictionary.DictionaryString;
+import hierarchy.NodeStats;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Int-indexed copy of a string hierarchy, addressed by the dictionary ids of
+ * the nodes. It holds the parent, level and weight of every node and the
+ * read-only set of its children, so that the id based methods of the
+ * hierarchy need no string lookups and allocate nothing. The index is not updated when the
+ * hierarchy changes; it has to be built again.
+ */
+public class HierarchyIndex {
+    private final int[] parents;
+    //level of every node counted from the leaves, -1 for ids not in the hierarchy
+    private final byte[] levels;
+    private final int[] weights;
+    //children of every node, null for the nodes without a children list
+    private final List<Set<Double>> childrenSets;
+
+    /**
+     * Builds the index of a hierarchy
+     * @param dict the dictionary of the hierarchy
+     * @param stats the level and weight of every node
+     * @param parents the parent of every node
+     * @param children the children of every node
+     * @param height the height of the hierarchy
+     */
+    public HierarchyIndex(DictionaryString dict, Map<String, NodeStats> stats,
+            Map<String, String> parents, Map<String, List<String>> children, int height){
+        int size = dict.getMaxUsedId() + 1;
+        this.parents = new int[size];
+        this.levels = new byte[size];
+        this.weights = new int[size];
+        this.childrenSets = new ArrayList<>(Collections.nCopies(size, (Set<Double>)null));
+        Arrays.fill(this.parents, -1);
+        Arrays.fill(this.levels, (byte)-1);
+
+        //parents, levels, weights and children of every node
+        for(Map.Entry<String, NodeStats> entry : stats.entrySet()){
+            int id = dict.getId(entry.getKey());
+            if(id < 0){
+                continue;
+            }
+            levels[id] = (byte)(height - entry.getValue().getLevel() - 1);
+            weights[id] = entry.getValue().weight;
+
+            String parent = parents.get(entry.getKey());
+            if(parent != null){
+                this.parents[id] = dict.getId(parent);
+            }
+
+            List<String> childrenList = children.get(entry.getKey());
+            if(childrenList != null){
+                Set<Double> childrenSet = new HashSet<>();
+                for(String child : childrenList){
+                    childrenSet.add((double)dict.getId(child));
+                }
+                childrenSets.set(id, Collections.unmodifiableSet(childrenSet));
+            }
+        }
+    }
+
+    /**
+     * Checks if an id is a node of the hierarchy
+     * @param id the id
+     * @return true if the id is in the index
+     */
+    public boolean contains(int id){
+        return id >= 0 && id < levels.length && levels[id] >= 0;
+    }
+
+    public int getParentId(int id){
+        return parents[id];
+    }
+
+    /**
+     * Gets the level of a node, counted from the leaves
+     * @param id the id of the node
+     * @return the level of the node
+     */
+    public int getLevel(int id){
+        return levels[id];
+    }
+
+    public int getWeight(int id){
+        return weights[id];
+    }
+
+    /**
+     * Updates the weight of a node
+     * @param id the id of the node
+     * @param weight the new weight
+     */
+    public void setWeight(int id, int weight){
+        weights[id] = weight;
+    }
+
+    /**
+     * Gets the children of a node as a read-only set, shared by all calls
+     * @param id the id of the node
+     * @return the ids of the children, null if the node has no children list
+     */
+    public Set<Double> getChildrenSet(int id){
+        return childrenSets.get(id);
+    }
+}
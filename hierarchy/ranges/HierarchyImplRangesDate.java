@@ -58,6 +58,8 @@ public class HierarchyImplRangesDate implements Hierarchy<RangeDate>{
     Map<RangeDate, RangeDate> parents = new HashMap<>();
 //    Map<Range, List<Range>> siblings = new HashMap<>();
     Map<Integer,ArrayList<RangeDate>> allParents = new HashMap<>();
+    //sorted bounds of the leaves, for getParent
+    RangeIndex leafIndex = null;
 
     
     public HierarchyImplRangesDate(String inputFile){
@@ -1081,6 +1083,47 @@ public class HierarchyImplRangesDate implements Hierarchy<RangeDate>{
         return str;
     }
     
+    /**
+     * Finds the leaf of a date in a part of the sorted leaves with a binary
+     * search, building the leaf index if the leaves changed
+     * @param list the leaves
+     * @param from the first position searched
+     * @param to the position after the last one searched
+     * @param d the date
+     * @return the leaf, null if it is not found in the index
+     */
+    private RangeDate findLeaf(List<RangeDate> list, int from, int to, Date d){
+        RangeIndex index = this.leafIndex;
+        if(index == null || !index.isFor(list)){
+            int size = list.size();
+            if(size > 0 && list.get(size-1).lowerBound == null){
+                size--;
+            }
+            double[] lowers = new double[size];
+            double[] uppers = new double[size];
+            for(int i=0; i<size; i++){
+                RangeDate r = list.get(i);
+                lowers[i] = (r.lowerBound != null) ? r.lowerBound.getTime() : Double.NaN;
+                uppers[i] = (r.upperBound != null) ? r.upperBound.getTime() : Double.NaN;
+            }
+            index = RangeIndex.build(list, lowers, uppers, 0);
+            this.leafIndex = index;
+        }
+        
+        int pos = index.find(from, to, d.getTime());
+        if(pos < 0){
+            return null;
+        }
+        RangeDate r = list.get(pos);
+        if(r.lowerBound == null || r.upperBound == null
+                || r.lowerBound.getTime() != index.getLowerBound(pos) || r.upperBound.getTime() != index.getUpperBound(pos)){
+            //a leaf was changed in place
+            this.leafIndex = null;
+            return null;
+        }
+        return r;
+    }
+    
     private RangeDate binarySearch(List<RangeDate> list, Date d){
 //        System.out.println("binary Search...");
         
@@ -1111,6 +1154,10 @@ public class HierarchyImplRangesDate implements Hierarchy<RangeDate>{
         //System.out.println("rrrrrrrrrrrrrrrr = " + r.toString());
         
         if(d.before(r.lowerBound)){
+            RangeDate leaf = findLeaf(list, 0, mid, d);
+            if(leaf != null){
+                return leaf;
+            }
             //System.out.println("gia pameeeeeeeeeeeeeeee");
             //return binarySearch(list.subList(0, mid-1), d);
             for ( int i = 0 ; i < mid ; i ++ ){
@@ -1125,6 +1172,10 @@ public class HierarchyImplRangesDate implements Hierarchy<RangeDate>{
             }
         }
         else if (d.after(r.upperBound)){
+            RangeDate leaf = findLeaf(list, mid, list.size(), d);
+            if(leaf != null){
+                return leaf;
+            }
             //System.out.println("gia pameeeeeeeeeeeeeeeeeee 2");
             for ( int i = mid ; i < list.size() ; i ++ ){
                 //System.out.println("upper = " + r.toString());
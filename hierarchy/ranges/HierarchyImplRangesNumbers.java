@@ -64,6 +64,8 @@ public class HierarchyImplRangesNumbers implements Hierarchy<RangeDouble>{
     Map<RangeDouble, RangeDouble> parents = new HashMap<>();
 //    Map<Range, List<Range>> siblings = new HashMap<>();
     Map<Integer,ArrayList<RangeDouble>> allParents = new HashMap<>();
+    //sorted bounds of the leaves, for getParent
+    RangeIndex leafIndex = null;
 
     
     public HierarchyImplRangesNumbers(String inputFile){
@@ -808,7 +810,6 @@ public class HierarchyImplRangesNumbers implements Hierarchy<RangeDouble>{
         
         //find index of column
         Integer c;
-        double[][] data = dataset.getDataSet();
         for(c  = 0 ; c < dataset.getColNamesPosition().keySet().size() ; c++){
             if(dataset.getColNamesPosition().get(c).equals(column)){
                 break;
@@ -819,9 +820,10 @@ public class HierarchyImplRangesNumbers implements Hierarchy<RangeDouble>{
         
         //assign values to nodes, starting from root
         
-        for (double[] columnData : data) {
-            System.out.println("columnData[c] = " + columnData[c]);
-            compute(getRoot(), columnData[c],true,true);     
+        for (int row = 0 ; row < dataset.getDataLenght() ; row++) {
+            double value = dataset.getValue(row, c);
+            System.out.println("columnData[c] = " + value);
+            compute(getRoot(), value,true,true);     
         }               
     }
     
@@ -1125,6 +1127,10 @@ public class HierarchyImplRangesNumbers implements Hierarchy<RangeDouble>{
         
         
         if(d < r.lowerBound){
+            RangeDouble leaf = findLeaf(list, 0, mid, d);
+            if(leaf != null){
+                return leaf;
+            }
             for ( int i = 0 ; i < mid ; i ++ ){
                 r = list.get(i);
                 
@@ -1134,6 +1140,10 @@ public class HierarchyImplRangesNumbers implements Hierarchy<RangeDouble>{
             }
         }
         else if (d > r.upperBound){
+            RangeDouble leaf = findLeaf(list, mid, list.size(), d);
+            if(leaf != null){
+                return leaf;
+            }
             for ( int i = mid ; i < list.size() ; i ++ ){
                 r = list.get(i);
                           
@@ -1182,6 +1192,52 @@ public class HierarchyImplRangesNumbers implements Hierarchy<RangeDouble>{
         return null;
     }
 
+    /**
+     * Finds the leaf of a value in a part of the sorted leaves with a binary
+     * search, building the leaf index if the leaves changed. The last leaf that
+     * is not NaN also contains its upper bound
+     * @param list the leaves
+     * @param from the first position searched
+     * @param to the position after the last one searched
+     * @param d the value
+     * @return the leaf, null if it is not found in the index
+     */
+    private RangeDouble findLeaf(List<RangeDouble> list, int from, int to, double d){
+        RangeIndex index = this.leafIndex;
+        if(index == null || !index.isFor(list)){
+            int size = list.size();
+            if(size > 0 && isNaN(list.get(size-1))){
+                size--;
+            }
+            double[] lowers = new double[size];
+            double[] uppers = new double[size];
+            for(int i=0; i<size; i++){
+                RangeDouble r = list.get(i);
+                lowers[i] = (r.lowerBound != null) ? r.lowerBound : Double.NaN;
+                uppers[i] = (r.upperBound != null) ? r.upperBound : Double.NaN;
+            }
+            index = RangeIndex.build(list, lowers, uppers, size-1);
+            this.leafIndex = index;
+        }
+        
+        int pos = index.find(from, to, d);
+        if(pos < 0){
+            return null;
+        }
+        RangeDouble r = list.get(pos);
+        if(r.lowerBound == null || r.upperBound == null
+                || r.lowerBound != index.getLowerBound(pos) || r.upperBound != index.getUpperBound(pos)){
+            //a leaf was changed in place
+            this.leafIndex = null;
+            return null;
+        }
+        return r;
+    }
+
+    private boolean isNaN(RangeDouble r){
+        return r.lowerBound != null && r.lowerBound.isNaN() && r.upperBound != null && r.upperBound.isNaN();
+    }
+
     @Override
     public int getLevelSize(int level) {
         return this.allParents.get(this.height - level - 1).size();
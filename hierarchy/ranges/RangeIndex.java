@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015 "IMIS-Athena R.C.",
+ * Institute for the Management of Information Systems, part of the "Athena"
+ * Research and Innovation Centre in Information, Communication and Knowledge Technologies.
+ * [http://www.imis.athena-innovation.gr/]
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ */
+package hierarchy.ranges;
+
+import java.util.List;
+
+/**
+ * Sorted bounds of the leaf ranges of a range hierarchy, for finding the
+ * range of a value with a binary search. It belongs to one list of leaves,
+ * and it is empty if the leaves are not sorted by lower bound or overlap;
+ * callers check the range it returns against the list.
+ */
+class RangeIndex {
+    private final List<?> ranges;
+    private final int size;
+    private final double[] lowers;
+    private final double[] uppers;
+    //ranges from this position on also contain their upper bound
+    private final int closedFrom;
+
+    /**
+     * Creates the index
+     * @param ranges the list of leaves
+     * @param lowers the lower bounds of the indexed leaves
+     * @param uppers the upper bounds of the indexed leaves
+     * @param closedFrom the first leaf that contains its upper bound
+     */
+    private RangeIndex(List<?> ranges, double[] lowers, double[] uppers, int closedFrom){
+        this.ranges = ranges;
+        this.size = ranges.size();
+        this.lowers = lowers;
+        this.uppers = uppers;
+        this.closedFrom = closedFrom;
+    }
+
+    /**
+     * Builds the index of a list of leaves
+     * @param ranges the list of leaves
+     * @param lowers the lower bounds of the first leaves of the list
+     * @param uppers the upper bounds of the same leaves
+     * @param closedFrom the first leaf that contains its upper bound
+     * @return the index, empty if the leaves are not sorted or overlap
+     */
+    static RangeIndex build(List<?> ranges, double[] lowers, double[] uppers, int closedFrom){
+        for(int i=0; i<lowers.length; i++){
+            if(!(lowers[i] <= uppers[i]) || (i > 0 && !(uppers[i-1] <= lowers[i]))){
+                return new RangeIndex(ranges, new double[0], new double[0], 0);
+            }
+        }
+        return new RangeIndex(ranges, lowers, uppers, closedFrom);
+    }
+
+    /**
+     * Checks if the index was built for a list of leaves
+     * @param ranges the list of leaves
+     * @return true if the index belongs to the list
+     */
+    boolean isFor(List<?> ranges){
+        return this.ranges == ranges && this.size == ranges.size();
+    }
+
+    /**
+     * Finds the first leaf in a part of the list that contains a value
+     * @param from the first position searched
+     * @param to the position after the last one searched
+     * @param v the value
+     * @return the position of the leaf, -1 if no indexed leaf contains it
+     */
+    int find(int from, int to, double v){
+        to = Math.min(to, uppers.length);
+
+        //first leaf ending after the value, or at it for closed leaves
+        int low = from;
+        int high = to;
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(uppers[mid] > v || (uppers[mid] == v && mid >= closedFrom)){
+                high = mid;
+            }
+            else{
+                low = mid + 1;
+            }
+        }
+
+        if(low < to && lowers[low] <= v){
+            return low;
+        }
+        return -1;
+    }
+
+    double getLowerBound(int pos){
+        return lowers[pos];
+    }
+
+    double getUpperBound(int pos){
+        return uppers[pos];
+    }
+}
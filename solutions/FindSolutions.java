@@ -106,8 +106,7 @@ public class FindSolutions {
     
     private void anonymizeTuplesOneQuasi(int[] transformation, int[] qids, int whichQid, int []specificQid) throws ParseException{
 //        System.out.println("\ntransf : " + Arrays.toString(transformation) + " qids : " + Arrays.toString(qids));
-        double [][]dataSet = dataset.getDataSet();
-        int length = dataSet.length;
+        int length = dataset.getDataLenght();
         Map <Integer,String> colNamesType = null;
         Map <Integer,String> colNamesPosition = null;
         Map <Integer,DictionaryString> dictionaries = null;
@@ -134,7 +133,7 @@ public class FindSolutions {
             
             Object data[] = new Object[qids.length];
             
-            for(int column=0; column<dataSet[0].length; column++){
+            for(int column=0; column<colNamesType.size(); column++){
                 
                 //System.out.println("dataSet[0].length = " + dataSet[0].length + "\tcolumn = " +column);
                 //System.out.println(" dataSet[line][column] = " +  dataSet[line][column]);
@@ -157,7 +156,7 @@ public class FindSolutions {
                 
                 if(colNamesType.get(column).contains("int")){
                     
-                    data[j] = dataSet[line][column];
+                    data[j] = dataset.getValue(line, column);
                     if(anonymizeColumn && level > 0){
                         data[j] = anonymizeValue(data[j], hierarchy, level);
                     }
@@ -169,7 +168,7 @@ public class FindSolutions {
                 }
                 else if(colNamesType.get(column).contains("double")){
                     
-                    data[j] = (double)dataSet[line][column];
+                    data[j] = dataset.getValue(line, column);
                     if(anonymizeColumn && level > 0){
                         data[j] = anonymizeValue(data[j], hierarchy, level);
                     }
@@ -178,7 +177,7 @@ public class FindSolutions {
                 else{
                     DictionaryString dictionary = dictionaries.get(column);
                     
-                    data[j] = dictionary.getIdToString((int)dataSet[line][column]);
+                    data[j] = dictionary.getIdToString((int)dataset.getValue(line, column));
                     if(anonymizeColumn && level > 0){
                         data[j] = anonymizeValue(data[j], hierarchy, level);
                     }
@@ -210,8 +209,7 @@ public class FindSolutions {
     
     private void anonymizeTuples(int[] transformation, int[] qids, int whichQid) throws ParseException{
 //        System.out.println("\ntransf : " + Arrays.toString(transformation) + " qids : " + Arrays.toString(qids));
-        double [][]dataSet = dataset.getDataSet();
-        int length = dataSet.length;
+        int length = dataset.getDataLenght();
         Map <Integer,String> colNamesType = null;
         Map <Integer,String> colNamesPosition = null;
         Map <Integer,DictionaryString> dictionaries = null;
@@ -238,7 +236,7 @@ public class FindSolutions {
             
             Object data[] = new Object[qids.length];
             
-            for(int column=0; column<dataSet[0].length; column++){
+            for(int column=0; column<colNamesType.size(); column++){
                 
                 //System.out.println("dataSet[0].length = " + dataSet[0].length + "\tcolumn = " +column);
                 //System.out.println(" dataSet[line][column] = " +  dataSet[line][column]);
@@ -261,7 +259,7 @@ public class FindSolutions {
                 
                 if(colNamesType.get(column).contains("int")){
                     
-                    data[j] = dataSet[line][column];
+                    data[j] = dataset.getValue(line, column);
                     if(anonymizeColumn && level > 0){
                         data[j] = anonymizeValue(data[j], hierarchy, level);
                     }
@@ -273,7 +271,7 @@ public class FindSolutions {
                 }
                 else if(colNamesType.get(column).contains("double")){
                     
-                    data[j] = (double)dataSet[line][column];
+                    data[j] = dataset.getValue(line, column);
                     if(anonymizeColumn && level > 0){
                         data[j] = anonymizeValue(data[j], hierarchy, level);
                     }
@@ -282,7 +280,7 @@ public class FindSolutions {
                 else{
                     DictionaryString dictionary = dictionaries.get(column);
                     
-                    data[j] = dictionary.getIdToString((int)dataSet[line][column]);
+                    data[j] = dictionary.getIdToString((int)dataset.getValue(line, column));
                     if(anonymizeColumn && level > 0){
                         data[j] = anonymizeValue(data[j], hierarchy, level);
                     }
@@ -22,7 +22,6 @@ public class Queries {
     private double[] maxArr;
     private String[] distinctArr;
     private String[] newDistinctArr;
-    private double[][] nonAnonymized;
     private String queryCategory = null;
     Map<String, Hierarchy> hierarchies;
     private int nonAnonymizeOccurrences = 0;
@@ -35,7 +34,6 @@ public class Queries {
     private Data data;
     private Map<Integer, Hierarchy> quasiIdentifiers;
     double allEstimatedRate = 0.0;
-    double [][]dataset = null;
     Results results;
     
     public Queries(String[] _identifiersArr, double[] _minArr, double[] _maxArr , String[] _distinctArr, Map<String, Hierarchy> _hierarchies,Data  _data, int []_hierarchyLevel, Map<Integer, Hierarchy> _quasiIdentifiers){
@@ -44,7 +42,6 @@ public class Queries {
         this.maxArr = _maxArr;
         this.distinctArr = _distinctArr;
         this.hierarchies = _hierarchies;
-        this.nonAnonymized = _data.getDataSet();
         this.hierarchyLevel = _hierarchyLevel;
         this.columnTypes = _data.getColNamesType();
         this.data = _data;
@@ -106,13 +103,13 @@ public class Queries {
         
         
         //non-Anonymized Statistics
-        for(int row = 0 ; row < nonAnonymized.length; row++){
+        for(int row = 0 ; row < data.getDataLenght(); row++){
             FLAG = true;
             for( int column = 0 ; column < identifiersArr.length ; column ++){
                 if (identifiersArr[column] != null){
                     if (distinctArr[column] == null ){
-                        if (nonAnonymized[row][column] != 2147483646.0 && !Double.isNaN(nonAnonymized[row][column])){
-                            if (minArr[column] <= nonAnonymized[row][column] && maxArr[column] >= nonAnonymized[row][column] ){
+                        if (data.getValue(row, column) != 2147483646.0 && !Double.isNaN(data.getValue(row, column))){
+                            if (minArr[column] <= data.getValue(row, column) && maxArr[column] >= data.getValue(row, column) ){
                                 if (FLAG != true ){
                                     nonAnonymizeOccurrences = 0;
                                     FLAG = false;
@@ -132,7 +129,7 @@ public class Queries {
                     else{
                         if (columnTypes.get(column).equals("string")){
                             dict = data.getDictionary(column);
-                            valueStr = dict.getIdToString((int)nonAnonymized[row][column]);
+                            valueStr = dict.getIdToString((int)data.getValue(row, column));
                             if(valueStr.equals(distinctArr[column])){
                                 if (FLAG != true ){
                                     nonAnonymizeOccurrences = 0;
@@ -147,8 +144,8 @@ public class Queries {
                         }
 
                         else{
-                            if (nonAnonymized[row][column] != 2147483646.0 && !Double.isNaN(nonAnonymized[row][column])){
-                                if (Double.parseDouble(distinctArr[column]) == nonAnonymized[row][column]){
+                            if (data.getValue(row, column) != 2147483646.0 && !Double.isNaN(data.getValue(row, column))){
+                                if (Double.parseDouble(distinctArr[column]) == data.getValue(row, column)){
                                     if (FLAG != true ){
                                         nonAnonymizeOccurrences = 0;
                                         FLAG = false;
@@ -270,9 +267,8 @@ public class Queries {
         }
         System.out.println("end");*/
         
-        dataset = data.getDataSet();
         String recordStr= null;
-        for (int row = 0; row < dataset.length ; row++){
+        for (int row = 0; row < data.getDataLenght() ; row++){
             FLAG  = false;
             recordStr= null;
             for ( int column = 0 ; column < identifiersArr.length ; column++){
@@ -285,7 +281,7 @@ public class Queries {
                                     
                                     dictionaries = data.getDictionary();
                                     DictionaryString dictionary = dictionaries.get(column);
-                                    Double d = (Double)dataset[row][column];
+                                    Double d = (Double)data.getValue(row, column);
                                     String newValue = dictionary.getIdToString(d.intValue());
                                     h = quasiIdentifiers.get(column);
                                     for ( int i = 0 ; i < hierarchyLevel[column] ; i ++){
@@ -302,8 +298,8 @@ public class Queries {
                                     }
                                 }
                                 else{//distinct double
-                                    Double newValue = dataset[row][column];
-                                    if (nonAnonymized[row][column] != 2147483646.0 && !Double.isNaN(nonAnonymized[row][column])){
+                                    Double newValue = data.getValue(row, column);
+                                    if (data.getValue(row, column) != 2147483646.0 && !Double.isNaN(data.getValue(row, column))){
                                         h = quasiIdentifiers.get(column);
                                         for ( int i = 0 ; i < hierarchyLevel[column] ; i ++){
                                             newValue = (Double) h.getParent(newValue);
@@ -323,9 +319,9 @@ public class Queries {
                             }
                             else{//ranges
                                 //System.out.println("rangeeeeeeeeees");
-                                Double newValue = dataset[row][column];
+                                Double newValue = data.getValue(row, column);
                                 RangeDouble r = null;
-                                if (nonAnonymized[row][column] != 2147483646.0 && !Double.isNaN(nonAnonymized[row][column])){
+                                if (data.getValue(row, column) != 2147483646.0 && !Double.isNaN(data.getValue(row, column))){
                                     h = quasiIdentifiers.get(column);
                                     for ( int i = 0 ; i < hierarchyLevel[column] ; i ++){
                                         if ( i == 0 ){
@@ -354,7 +350,7 @@ public class Queries {
                             if (columnTypes.get(column).equals("string")){
                                 dictionaries = data.getDictionary();
                                 DictionaryString dictionary = dictionaries.get(column);
-                                Double d = (Double)dataset[row][column];
+                                Double d = (Double)data.getValue(row, column);
                                 String newValue = dictionary.getIdToString(d.intValue());
                                 
                                 if (FLAG == false){
@@ -368,11 +364,11 @@ public class Queries {
                             }
                             else{
                                 if (FLAG == false){
-                                    recordStr = dataset[row][column] +"";
+                                    recordStr = data.getValue(row, column) +"";
                                     FLAG = true;
                                 }
                                 else{
-                                    recordStr = recordStr + "," + dataset[row][column]; 
+                                    recordStr = recordStr + "," + data.getValue(row, column); 
 
                                 }
                             }